@@ -24,6 +24,7 @@ import bee.api.Scope;
 import bee.api.VCS;
 import bee.task.Help;
 import bee.task.Prototype;
+import bee.task.Repository;
 import bee.util.JavaCompiler;
 import bee.util.Profiling;
 import kiss.I;
@@ -226,6 +227,9 @@ public class Bee {
             for (Task current : builds) {
                 current.execute();
             }
+
+            // clean up the local repository
+            Task.find(Repository.class).collectInBackground();
         } catch (Throwable e) {
             code = 1;
             if (e == Abort) {
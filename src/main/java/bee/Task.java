@@ -43,6 +43,7 @@ import bee.api.Project;
 import bee.util.EnhancedClassWriter;
 import bee.util.EnhancedMethodWriter;
 import bee.util.Inputs;
+import bee.util.JarWriter;
 import bee.util.Profiling;
 import kiss.Extensible;
 import kiss.I;
@@ -522,6 +523,14 @@ public abstract class Task implements Extensible {
             throw new Fail("File [" + from + "] is not found.");
         }
 
+        // the other archive formats (7z, tar, gz...) are left to psychopath
+        String extension = to.extension();
+        if (options == UnaryOperator.<Option> identity() && (extension.equalsIgnoreCase("zip") || extension.equalsIgnoreCase("jar"))) {
+            new JarWriter().addDirectory(from, from.name() + "/").write(to);
+            ui.info("Packed ", from.name(), " to ", to);
+            return;
+        }
+
         from.trackPackingTo(to, options).to(progress -> {
             ui.trace("Packing ", from.name(), " to ", to, " (", progress.rateByFiles(), "%)");
         }, e -> {
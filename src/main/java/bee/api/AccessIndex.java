@@ -0,0 +1,300 @@
+/*
+ * Copyright (C) 2024 The BEE Development Team
+ *
+ * Licensed under the MIT License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          https://opensource.org/licenses/MIT
+ */
+package bee.api;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import bee.UserInterface;
+import bee.util.Inputs;
+import kiss.I;
+import psychopath.Directory;
+import psychopath.File;
+
+/**
+ * Records the last access time of each artifact in the local repository. All records are stored in
+ * one compact index file at the root of the repository, and the least recently used artifacts can
+ * be evicted down to the size budget.
+ */
+public class AccessIndex {
+
+    /** The index file name. */
+    private static final String NAME = ".bee-access";
+
+    /** The format identifier. */
+    private static final int MAGIC = 0xBEEACCE5;
+
+    /** The start time of the current process. All artifacts used after this time are in use. */
+    public static final long SESSION = ManagementFactory.getRuntimeMXBean().getStartTime();
+
+    /** The index cache. */
+    private static final Map<Path, AccessIndex> indexes = new ConcurrentHashMap();
+
+    /** The root directory of the local repository. */
+    private final Path root;
+
+    /** The last access time for each artifact directory. (relative path → epoch millis) */
+    private final Map<String, Long> accesses = new ConcurrentHashMap();
+
+    /** The modification state. */
+    private volatile boolean modified;
+
+    /**
+     * Load the index of the specified repository.
+     * 
+     * @param root
+     */
+    private AccessIndex(Path root) {
+        this.root = root;
+        this.accesses.putAll(read(root.resolve(NAME)));
+    }
+
+    /**
+     * Read the index file.
+     * 
+     * @param file The index file.
+     * @return The last access time for each artifact directory.
+     */
+    private static Map<String, Long> read(Path file) {
+        Map<String, Long> accesses = new HashMap();
+        if (Files.exists(file)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                if (in.readInt() == MAGIC) {
+                    for (int i = in.readInt(); 0 < i; i--) {
+                        accesses.put(in.readUTF(), in.readLong());
+                    }
+                }
+            } catch (IOException e) {
+                // ignore broken index, the modified time will be used instead
+            }
+        }
+        return accesses;
+    }
+
+    /**
+     * Find the access index of the specified local repository.
+     * 
+     * @param repository A root directory of the local repository.
+     * @return The associated index.
+     */
+    public static AccessIndex of(Directory repository) {
+        return indexes.computeIfAbsent(repository.absolutize().asJavaPath(), path -> {
+            AccessIndex index = new AccessIndex(path);
+            Runtime.getRuntime().addShutdownHook(new Thread(index::store));
+            return index;
+        });
+    }
+
+    /**
+     * Record the access to the specified artifact file.
+     * 
+     * @param file An artifact file in the local repository.
+     */
+    public void touch(File file) {
+        if (file != null) {
+            Path path = file.absolutize().asJavaPath().getParent();
+
+            if (path != null && path.startsWith(root) && !path.equals(root)) {
+                accesses.put(key(path), System.currentTimeMillis());
+                modified = true;
+            }
+        }
+    }
+
+    /**
+     * Write the index file if needed. The other processes may have updated the index file since it
+     * was loaded, so their records are merged under the file lock before writing.
+     */
+    public synchronized void store() {
+        if (modified && Files.isDirectory(root)) {
+            try (FileChannel channel = FileChannel.open(root.resolve(NAME + ".lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                    FileLock lock = channel.lock()) {
+                // the newer access wins, the record of evicted artifact is not restored
+                read(root.resolve(NAME)).forEach((key, time) -> {
+                    if (accesses.containsKey(key) || Files.isDirectory(root.resolve(key))) {
+                        accesses.merge(key, time, Math::max);
+                    }
+                });
+
+                Path temp = Files.createTempFile(root, NAME, ".tmp");
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(accesses.size());
+                    for (Map.Entry<String, Long> entry : accesses.entrySet()) {
+                        out.writeUTF(entry.getKey());
+                        out.writeLong(entry.getValue());
+                    }
+                }
+                Files.move(temp, root.resolve(NAME), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                modified = false;
+            } catch (IOException e) {
+                throw I.quiet(e);
+            }
+        }
+    }
+
+    /**
+     * Evict the least recently used artifacts until the total size of the local repository fits
+     * the budget. The artifacts used after the specified time are never evicted.
+     * 
+     * @param budget The maximum size of the local repository. (byte)
+     * @param protect The artifacts used after this time (epoch millis) are kept.
+     * @param ui A user interface to notify. (nullable)
+     * @return The size of evicted artifacts. (byte)
+     */
+    public long evict(long budget, long protect, UserInterface ui) {
+        return evict(budget, protect, ui, I.make(BlobStore.class));
+    }
+
+    /**
+     * Evict the least recently used artifacts until the total size of the local repository fits
+     * the budget, and prune the shared blobs which are no longer referenced.
+     * 
+     * @param budget The maximum size of the local repository. (byte)
+     * @param protect The artifacts used after this time (epoch millis) are kept.
+     * @param ui A user interface to notify. (nullable)
+     * @param store The shared blob store.
+     * @return The size of evicted artifacts. (byte)
+     */
+    synchronized long evict(long budget, long protect, UserInterface ui, BlobStore store) {
+        List<Unit> units = new ArrayList();
+        long total = 0;
+
+        try (Stream<Path> directories = Files.walk(root)) {
+            for (Path directory : directories.filter(Files::isDirectory).toList()) {
+                Unit unit = new Unit(directory);
+                if (0 < unit.size) {
+                    units.add(unit);
+                    total += unit.size;
+                }
+            }
+        } catch (IOException e) {
+            throw I.quiet(e);
+        }
+
+        long freed = 0;
+        units.sort(Comparator.comparingLong(unit -> unit.accessed));
+
+        for (Unit unit : units) {
+            if (total <= budget) {
+                break;
+            }
+
+            if (unit.accessed < protect && unit.delete()) {
+                total -= unit.size;
+                freed += unit.size;
+                accesses.remove(unit.key);
+                modified = true;
+
+                if (ui != null) ui.trace("Evict ", unit.key, " (", Inputs.formatAsSize(unit.size), ")");
+            }
+        }
+        store();
+
+        // the evicted artifacts may be the last references to the shared blobs
+        store.prune();
+
+        if (ui != null) {
+            ui.info("Evicted ", Inputs.formatAsSize(freed), " from the local repository [", root, "] (", Inputs
+                    .formatAsSize(total), " remains)");
+        }
+        return freed;
+    }
+
+    /**
+     * Compute the index key.
+     * 
+     * @param directory
+     * @return
+     */
+    private String key(Path directory) {
+        return root.relativize(directory).toString().replace('\\', '/');
+    }
+
+    /**
+     * The eviction unit, it is the directory which contains artifact files directly.
+     */
+    private class Unit {
+
+        /** The artifact directory. */
+        private final Path directory;
+
+        /** The key. */
+        private final String key;
+
+        /** The artifact files. */
+        private final List<Path> files = new ArrayList();
+
+        /** The total size. */
+        private long size;
+
+        /** The last access time. */
+        private long accessed;
+
+        /**
+         * @param directory
+         */
+        private Unit(Path directory) throws IOException {
+            this.directory = directory;
+            this.key = key(directory);
+
+            if (!directory.equals(root)) {
+                long modified = 0;
+                try (Stream<Path> children = Files.list(directory)) {
+                    for (Path child : children.filter(Files::isRegularFile).toList()) {
+                        files.add(child);
+                        size += Files.size(child);
+                        modified = Math.max(modified, Files.getLastModifiedTime(child).toMillis());
+                    }
+                }
+
+                Long access = accesses.get(key);
+                accessed = access == null ? modified : access;
+            }
+        }
+
+        /**
+         * Delete all artifact files.
+         * 
+         * @return
+         */
+        private boolean delete() {
+            try {
+                for (Path file : files) {
+                    Files.deleteIfExists(file);
+                }
+
+                try (Stream<Path> children = Files.list(directory)) {
+                    if (children.findAny().isEmpty()) Files.delete(directory);
+                }
+                return true;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,288 @@
+/*
+ * Copyright (C) 2024 The BEE Development Team
+ *
+ * Licensed under the MIT License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          https://opensource.org/licenses/MIT
+ */
+package bee.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import bee.Platform;
+import kiss.I;
+import kiss.Managed;
+import kiss.Singleton;
+
+/**
+ * Content-addressed storage for the downloaded artifacts. Each blob is identified by its SHA-256
+ * digest, and the files in the Maven-layout local repository are hardlinks into this store. The
+ * identical bytes under different coordinates are stored only once, and the cacheless build can
+ * reuse the verified blobs instead of downloading them again.
+ */
+@Managed(Singleton.class)
+class BlobStore {
+
+    /** The file name pattern of blob. */
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+    /** The file name suffix of the reference list. */
+    private static final String REFERENCES = ".refs";
+
+    /** The root directory of blobs. */
+    private final Path root;
+
+    /** The index file which maps the resource location to the content hash. */
+    private final Path indexFile;
+
+    /** The index from the repository and resource location to the content hash. */
+    private final Map<String, String> index = new ConcurrentHashMap();
+
+    /**
+     * Load index.
+     */
+    private BlobStore() {
+        this(Platform.BeeHome.directory("blob").asJavaPath());
+    }
+
+    /**
+     * Load index.
+     * 
+     * @param root The root directory of blobs.
+     */
+    BlobStore(Path root) {
+        this.root = root;
+        this.indexFile = root.resolve("index");
+
+        try {
+            if (Files.exists(indexFile)) {
+                for (String line : Files.readAllLines(indexFile, StandardCharsets.UTF_8)) {
+                    int separator = line.indexOf(' ');
+                    if (separator != -1) {
+                        index.put(line.substring(separator + 1), line.substring(0, separator));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // ignore broken index, blobs will be registered again
+        }
+    }
+
+    /**
+     * Check whether the specified resource is immutable and can be shared by its content or not.
+     * 
+     * @param location A resource location in Maven layout.
+     * @return Result.
+     */
+    static boolean accept(String location) {
+        if (location == null || location.contains("SNAPSHOT") || location.contains("maven-metadata")) {
+            return false;
+        }
+
+        for (String checksum : List.of(".md5", ".sha1", ".sha256", ".sha512", ".asc")) {
+            if (location.endsWith(checksum)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Materialize the stored blob for the specified resource location into the given file. The
+     * destination is not recorded as the reference because it is the temporary file of resolver,
+     * the final file is registered by {@link #store(String, String, Path)} after validation.
+     * 
+     * @param repository A repository identifier.
+     * @param location A resource location in Maven layout.
+     * @param destination A destination file.
+     * @return True if the verified blob is linked or copied to the destination.
+     */
+    boolean restore(String repository, String location, Path destination) {
+        String key = key(repository, location);
+        String hash = index.get(key);
+        if (hash == null) {
+            return false;
+        }
+
+        Path blob = locate(hash);
+        try {
+            if (Files.notExists(blob)) {
+                index.remove(key);
+                return false;
+            }
+
+            // Hardlinked files can be modified in place by other tools, so never trust the blob
+            // without verification.
+            if (!hash.equals(hash(blob))) {
+                Files.deleteIfExists(blob);
+                index.remove(key);
+                return false;
+            }
+
+            link(blob, destination);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Register the validated file in the local repository for the specified resource location. The
+     * given file will be replaced by the hardlink to the shared blob and recorded as its reference.
+     * 
+     * @param repository A repository identifier.
+     * @param location A resource location in Maven layout.
+     * @param file A downloaded file.
+     */
+    void store(String repository, String location, Path file) {
+        String key = key(repository, location);
+
+        try {
+            String hash = hash(file);
+            Path blob = locate(hash);
+
+            if (Files.notExists(blob)) {
+                Files.createDirectories(blob.getParent());
+
+                try {
+                    Files.createLink(blob, file);
+                } catch (IOException | UnsupportedOperationException e) {
+                    Files.copy(file, blob, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } else {
+                link(blob, file);
+            }
+            refer(blob, file);
+
+            if (!hash.equals(index.put(key, hash))) {
+                synchronized (this) {
+                    Files.writeString(indexFile, hash + " " + key + "\n", StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                }
+            }
+        } catch (IOException e) {
+            // The blob store is a cache only, so the downloaded file is still usable.
+        }
+    }
+
+    /**
+     * Delete all blobs which are no longer referenced by any local repository. Each blob records
+     * the files which are linked or copied from it, and the blob is unused when none of them
+     * exists.
+     */
+    synchronized void prune() {
+        if (Files.notExists(root)) {
+            return;
+        }
+
+        try (Stream<Path> files = Files.walk(root, 2)) {
+            for (Path blob : files.filter(path -> Files.isRegularFile(path) && HASH.matcher(path.getFileName().toString()).matches())
+                    .toList()) {
+                Path references = blob.resolveSibling(blob.getFileName() + REFERENCES);
+                List<String> alive = Files.notExists(references) ? List.of()
+                        : Files.readAllLines(references, StandardCharsets.UTF_8)
+                                .stream()
+                                .distinct()
+                                .filter(reference -> Files.exists(Path.of(reference)))
+                                .toList();
+
+                if (alive.isEmpty()) {
+                    Files.delete(blob);
+                    Files.deleteIfExists(references);
+                    index.values().removeIf(blob.getFileName().toString()::equals);
+                } else {
+                    Files.write(references, alive, StandardCharsets.UTF_8);
+                }
+            }
+        } catch (IOException e) {
+            // The blob store is a cache only, try again next time.
+        }
+    }
+
+    /**
+     * Record the file which refers the specified blob.
+     * 
+     * @param blob A source blob.
+     * @param file A linked or copied file.
+     */
+    private void refer(Path blob, Path file) throws IOException {
+        Files.writeString(blob.resolveSibling(blob.getFileName() + REFERENCES), file.toAbsolutePath()
+                .normalize() + "\n", StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Compute the index key. The same location in the different repositories may have the
+     * different content, so the repository is the part of key.
+     * 
+     * @param repository A repository identifier.
+     * @param location A resource location in Maven layout.
+     * @return The index key.
+     */
+    private static String key(String repository, String location) {
+        return repository + ":" + location;
+    }
+
+    /**
+     * Locate the blob file by hash.
+     * 
+     * @param hash A content hash.
+     * @return The blob location.
+     */
+    private Path locate(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    /**
+     * Replace the destination by the hardlink to the blob. If the file system doesn't support
+     * hardlink (or the destination is on the other device), it will be copied instead.
+     * 
+     * @param blob A source blob.
+     * @param destination A destination file.
+     */
+    private void link(Path blob, Path destination) throws IOException {
+        Files.createDirectories(destination.getParent());
+        Files.deleteIfExists(destination);
+
+        try {
+            Files.createLink(destination, blob);
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(blob, destination, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Compute SHA-256 of the specified file.
+     * 
+     * @param file A target file.
+     * @return A hex digest.
+     */
+    static String hash(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[1024 * 32];
+            int read;
+            while (0 < (read = in.read(buffer))) {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw I.quiet(e);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2024 The BEE Development Team
+ *
+ * Licensed under the MIT License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          https://opensource.org/licenses/MIT
+ */
+package bee.api;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import kiss.I;
+import kiss.Managed;
+import kiss.Singleton;
+
+/**
+ * Coordinates all remote transfers. Each host has its own concurrency limit, so the slow host (e.g.
+ * JitPack which builds the artifact on demand) can't hog the slots for the other hosts. The waiting
+ * transfers are granted by priority, and by arrival order within the same priority.
+ */
+@Managed(Singleton.class)
+class DownloadScheduler {
+
+    /** The default concurrency limit for each host. */
+    static final int DEFAULT_LIMIT = 8;
+
+    /** The concurrency limits for the specific hosts. */
+    private static final Map<String, Integer> limits = Map.of("jitpack.io", 2);
+
+    /** The hosts. */
+    private final Map<String, Host> hosts = new ConcurrentHashMap();
+
+    /** The arrival counter. */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /** The transferred bytes in the current measuring window. */
+    private final LongAdder bytes = new LongAdder();
+
+    /** The start time of the current measuring window. */
+    private volatile long window = System.nanoTime();
+
+    /** The latest throughput. (bytes per second) */
+    private volatile long throughput;
+
+    /**
+     * Execute the transfer in the slot of the specified host.
+     * 
+     * @param host A host name.
+     * @param location A resource location in Maven layout.
+     * @param transfer A transfer action.
+     */
+    void execute(String host, String location, Transfer transfer) throws Exception {
+        Host slots = hosts.computeIfAbsent(host == null ? "" : host, key -> new Host(limits.getOrDefault(key, DEFAULT_LIMIT)));
+        slots.acquire(new Ticket(Priority.of(location), sequence.getAndIncrement()));
+
+        try {
+            transfer.run();
+        } finally {
+            slots.release();
+        }
+    }
+
+    /**
+     * Record the transferred bytes.
+     * 
+     * @param size
+     */
+    void transferred(long size) {
+        bytes.add(size);
+
+        long now = System.nanoTime();
+        long elapsed = now - window;
+        if (1000_000_000L <= elapsed) {
+            synchronized (this) {
+                elapsed = now - window;
+                if (1000_000_000L <= elapsed) {
+                    throughput = bytes.sumThenReset() * 1000_000_000L / elapsed;
+                    window = now;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the latest throughput.
+     * 
+     * @return Bytes per second.
+     */
+    long throughput() {
+        return throughput;
+    }
+
+    /**
+     * Count the waiting transfers.
+     * 
+     * @return The queue depth.
+     */
+    int waiting() {
+        int count = 0;
+        for (Host host : hosts.values()) {
+            synchronized (host) {
+                count += host.queue.size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Count the running transfers.
+     * 
+     * @return The number of active transfers.
+     */
+    int running() {
+        int count = 0;
+        for (Host host : hosts.values()) {
+            synchronized (host) {
+                count += host.running;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * The transfer action.
+     */
+    interface Transfer {
+
+        /**
+         * Transfer the resource.
+         */
+        void run() throws Exception;
+    }
+
+    /**
+     * The transfer priority.
+     */
+    enum Priority {
+        /** The metadata which blocks the dependency resolution. */
+        Metadata,
+
+        /** The artifact on classpath. */
+        Artifact,
+
+        /** The sources and javadoc. */
+        Attachment;
+
+        /**
+         * Classify the resource location.
+         * 
+         * @param location A resource location in Maven layout.
+         * @return The priority.
+         */
+        static Priority of(String location) {
+            if (location == null || location.endsWith(".pom") || location.contains("maven-metadata") || location
+                    .endsWith(".sha1") || location.endsWith(".md5")) {
+                return Metadata;
+            }
+
+            if (location.endsWith("-sources.jar") || location.endsWith("-javadoc.jar")) {
+                return Attachment;
+            }
+            return Artifact;
+        }
+    }
+
+    /**
+     * The waiting transfer.
+     */
+    private static class Ticket {
+
+        /** The priority. */
+        private final Priority priority;
+
+        /** The arrival order. */
+        private final long order;
+
+        /** The grant state. */
+        private boolean granted;
+
+        /**
+         * @param priority
+         * @param order
+         */
+        private Ticket(Priority priority, long order) {
+            this.priority = priority;
+            this.order = order;
+        }
+    }
+
+    /**
+     * The transfer slots for each host.
+     */
+    private static class Host {
+
+        /** The maximum number of concurrent transfers. */
+        private final int limit;
+
+        /** The waiting transfers. */
+        private final PriorityQueue<Ticket> queue = new PriorityQueue<>(Comparator.<Ticket, Priority> comparing(ticket -> ticket.priority)
+                .thenComparingLong(ticket -> ticket.order));
+
+        /** The number of running transfers. */
+        private int running;
+
+        /**
+         * @param limit
+         */
+        private Host(int limit) {
+            this.limit = limit;
+        }
+
+        /**
+         * Wait for the free slot.
+         * 
+         * @param ticket
+         */
+        private synchronized void acquire(Ticket ticket) {
+            if (running < limit && queue.isEmpty()) {
+                running++;
+                return;
+            }
+
+            queue.add(ticket);
+            try {
+                while (!ticket.granted) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                if (ticket.granted) {
+                    release();
+                } else {
+                    queue.remove(ticket);
+                }
+                Thread.currentThread().interrupt();
+                throw I.quiet(e);
+            }
+        }
+
+        /**
+         * Release the slot and pass it to the next transfer.
+         */
+        private synchronized void release() {
+            Ticket next = queue.poll();
+            if (next == null) {
+                running--;
+            } else {
+                next.granted = true;
+                notifyAll();
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -20,6 +20,7 @@ import java.net.http.HttpRequest.BodyPublishers;
 import java.net.http.HttpRequest.Builder;
 import java.net.http.HttpResponse;
 import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import java.util.Optional;
 import java.util.OptionalLong;
 
@@ -59,6 +60,19 @@ class FastTransporter implements TransporterFactory {
      */
     @Override
     public Transporter newInstance(RepositorySystemSession session, RemoteRepository repository) throws NoTransporterException {
+        return newInstance(repository, I.make(BlobStore.class));
+    }
+
+    /**
+     * Create the transporter which restores the shared blobs from the specified store.
+     * 
+     * @param repository The remote repository.
+     * @param store The blob store.
+     * @return The transporter.
+     */
+    Transporter newInstance(RemoteRepository repository, BlobStore store) {
+        DownloadScheduler scheduler = I.make(DownloadScheduler.class);
+
         return new Transporter() {
 
             /**
@@ -76,11 +90,13 @@ class FastTransporter implements TransporterFactory {
             public void peek(PeekTask task) throws Exception {
                 URI uri = URI.create(repository.getUrl() + task.getLocation());
                 Builder request = HttpRequest.newBuilder(uri).method("HEAD", BodyPublishers.noBody());
-                I.http(request, HttpResponse.class).waitForTerminate().to((WiseConsumer<HttpResponse>) res -> {
-                    int code = res.statusCode();
-                    if (400 <= code) {
-                        throw new HttpRetryException("Fail to peek resource [" + uri + "]", code);
-                    }
+                scheduler.execute(uri.getHost(), task.getLocation().toString(), () -> {
+                    I.http(request, HttpResponse.class).waitForTerminate().to((WiseConsumer<HttpResponse>) res -> {
+                        int code = res.statusCode();
+                        if (400 <= code) {
+                            throw new HttpRetryException("Fail to peek resource [" + uri + "]", code);
+                        }
+                    });
                 });
             }
 
@@ -89,28 +105,51 @@ class FastTransporter implements TransporterFactory {
              */
             @Override
             public void get(GetTask task) throws Exception {
-                String uri = repository.getUrl() + task.getLocation();
-
-                I.http(uri, HttpResponse.class).waitForTerminate().to((WiseConsumer<HttpResponse>) res -> {
-                    // analyze header
-                    HttpHeaders headers = res.headers();
-                    OptionalLong length = headers.firstValueAsLong("Content-Length");
-
-                    // transfer data
-                    try (InputStream in = (InputStream) res.body(); OutputStream out = new FileOutputStream(task.getDataFile())) {
+                String location = task.getLocation().toString();
+                String uri = repository.getUrl() + location;
+
+                // reuse the verified blob which has been downloaded by any project, the blob is
+                // registered by Loader after the resolver has validated and placed the artifact
+                if (task.getDataFile() != null && BlobStore.accept(location) && store.restore(repository.getId(), location, task.getDataFile().toPath())) {
+                    // pass the restored content through the listener, the checksum calculators of
+                    // resolver observe it to validate the artifact
+                    try (InputStream in = Files.newInputStream(task.getDataFile().toPath())) {
                         TransportListener listener = task.getListener();
-                        listener.transportStarted(0, length.orElse(0));
+                        listener.transportStarted(0, task.getDataFile().length());
 
                         int read = -1;
                         byte[] buffer = new byte[1024 * 32];
                         while (0 < (read = in.read(buffer))) {
-                            out.write(buffer, 0, read);
                             listener.transportProgressed(ByteBuffer.wrap(buffer, 0, read));
                         }
                     }
+                    return;
+                }
+
+                // wait for the free slot of the host, the waiting transfers are granted by priority
+                scheduler.execute(URI.create(uri).getHost(), location, () -> {
+                    I.http(uri, HttpResponse.class).waitForTerminate().to((WiseConsumer<HttpResponse>) res -> {
+                        // analyze header
+                        HttpHeaders headers = res.headers();
+                        OptionalLong length = headers.firstValueAsLong("Content-Length");
+
+                        // transfer data
+                        try (InputStream in = (InputStream) res.body(); OutputStream out = new FileOutputStream(task.getDataFile())) {
+                            TransportListener listener = task.getListener();
+                            listener.transportStarted(0, length.orElse(0));
+
+                            int read = -1;
+                            byte[] buffer = new byte[1024 * 32];
+                            while (0 < (read = in.read(buffer))) {
+                                out.write(buffer, 0, read);
+                                listener.transportProgressed(ByteBuffer.wrap(buffer, 0, read));
+                                scheduler.transferred(read);
+                            }
+                        }
 
-                    // detect checksum
-                    readChecksum(headers, task);
+                        // detect checksum
+                        readChecksum(headers, task);
+                    });
                 });
             }
 
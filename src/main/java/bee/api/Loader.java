@@ -15,12 +15,16 @@ import java.io.OutputStream;
 import java.net.URI;
 import java.net.http.HttpHeaders;
 import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.aether.AbstractRepositoryListener;
 import org.eclipse.aether.RepositoryEvent;
+import org.eclipse.aether.repository.RemoteRepository;
 import org.eclipse.aether.transfer.TransferCancelledException;
 import org.eclipse.aether.transfer.TransferEvent;
 import org.eclipse.aether.transfer.TransferEvent.RequestType;
@@ -60,6 +64,24 @@ public class Loader extends AbstractRepositoryListener implements TransferListen
         ui.info("Install " + event.getArtifact() + " to " + event.getFile());
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void artifactDownloaded(RepositoryEvent event) {
+        // share the artifact which has been validated and placed in the local repository
+        if (event.getException() == null && event.getFile() != null && event.getRepository() instanceof RemoteRepository remote) {
+            Path file = event.getFile().toPath().toAbsolutePath();
+            Path root = event.getSession().getLocalRepository().getBasedir().toPath().toAbsolutePath();
+            if (file.startsWith(root) && Files.isRegularFile(file)) {
+                String location = root.relativize(file).toString().replace('\\', '/');
+                if (!corrupted.remove(location) && BlobStore.accept(location)) {
+                    I.make(BlobStore.class).store(remote.getId(), location, file);
+                }
+            }
+        }
+    }
+
     /** The progress event interval. (ms) */
     private static final long interval = 200 * 1000 * 1000;
 
@@ -72,6 +94,9 @@ public class Loader extends AbstractRepositoryListener implements TransferListen
     /** The uploading items. */
     private Map<String, Resource> uploading = new ConcurrentHashMap();
 
+    /** The locations which have failed the checksum validation. */
+    private final Set<String> corrupted = ConcurrentHashMap.newKeySet();
+
     /**
      * {@inheritDoc}
      */
@@ -111,6 +136,18 @@ public class Loader extends AbstractRepositoryListener implements TransferListen
                 if (!message.isEmpty()) message.append(Platform.EOL);
                 message.append(buildMessage(download ? "Downloading" : "Uploading", entry.getValue(), true));
             }
+
+            if (download) {
+                DownloadScheduler scheduler = I.make(DownloadScheduler.class);
+                message.append(Platform.EOL)
+                        .append("Queue : ")
+                        .append(scheduler.running())
+                        .append(" active, ")
+                        .append(scheduler.waiting())
+                        .append(" waiting (")
+                        .append(Inputs.formatAsSize(scheduler.throughput()))
+                        .append("/s)");
+            }
             ui.trace(message);
         }
     }
@@ -146,6 +183,7 @@ public class Loader extends AbstractRepositoryListener implements TransferListen
      */
     @Override
     public void transferCorrupted(TransferEvent event) {
+        corrupted.add(event.getResource().getResourceName());
         ui.error(event.getException());
     }
 
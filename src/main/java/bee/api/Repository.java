@@ -13,13 +13,16 @@ import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -326,6 +329,8 @@ public class Repository {
                 }));
 
                 for (ArtifactResult dependency : result.getArtifactResults()) {
+                    touch(dependency.getArtifact());
+
                     Library lib = new Library(dependency.getArtifact());
                     Library old = checkDupilication(set, lib);
                     if (old != null) {
@@ -450,6 +455,7 @@ public class Repository {
                 ArtifactResult result = system.resolveArtifact(session, request);
 
                 if (result.isResolved()) {
+                    touch(result.getArtifact());
                     return Locator.file(result.getArtifact().getFile().getPath());
                 } else {
                     ui.info("Artifact [", sub, "] is not resolved.");
@@ -463,6 +469,17 @@ public class Repository {
         return null;
     }
 
+    /**
+     * Record the access time of the resolved artifact for the eviction of the local repository.
+     * 
+     * @param artifact A resolved artifact.
+     */
+    private void touch(Artifact artifact) {
+        if (artifact != null && artifact.getFile() != null) {
+            AccessIndex.of(getLocalRepository()).touch(Locator.file(artifact.getFile().getPath()));
+        }
+    }
+
     /**
      * Retrieve all repositories.
      * 
@@ -523,6 +540,17 @@ public class Repository {
         }
     }
 
+    /**
+     * Serve the local repository over HTTP as the caching proxy of all remote repositories.
+     * 
+     * @param port A port number. Zero means any free port.
+     * @param refresh The refresh interval (ms) of the mutable resources like maven-metadata.xml.
+     * @return The running server.
+     */
+    public RepositoryServer serve(int port, long refresh) {
+        return new RepositoryServer(getLocalRepository(), remoteRepositories(), refresh, I.make(BlobStore.class)).start(port);
+    }
+
     /**
      * Get the local repository path.
      * 
@@ -746,11 +774,18 @@ public class Repository {
     /**
      * Select nearest or highest strategy.
      */
-    private static class ConflictVersionSelector extends VersionSelector {
+    static class ConflictVersionSelector extends VersionSelector {
+
+        /** The selection strategy. */
+        private final boolean highest;
 
         private final BiPredicate<ConflictItem, ConflictItem> selectionStrategy;
 
-        private ConflictVersionSelector(boolean highest) {
+        /** The memoized results of version constraint evaluation. */
+        private final Map<VersionConstraint, Map<Version, Boolean>> containments = new ConcurrentHashMap();
+
+        ConflictVersionSelector(boolean highest) {
+            this.highest = highest;
             this.selectionStrategy = highest ? (candidate, winner) -> {
                 return candidate.getNode().getVersion().compareTo(winner.getNode().getVersion()) > 0;
             } : (candidate, winner) -> {
@@ -773,15 +808,15 @@ public class Repository {
                 boolean hardConstraint = constraint.getRange() != null;
 
                 if (hardConstraint) {
-                    if (group.constraints.add(constraint)) {
-                        if (group.winner != null && !constraint.containsVersion(group.winner.getNode().getVersion())) {
+                    if (group.constrain(constraint)) {
+                        if (group.winner != null && !group.accepts(group.winner.getNode().getVersion())) {
                             backtrack = true;
                         }
                     }
                 }
 
-                if (isAcceptableByConstraints(group, node.getVersion())) {
-                    group.candidates.add(candidate);
+                if (group.accepts(node.getVersion())) {
+                    group.add(candidate);
 
                     if (backtrack) {
                         backtrack(group, context);
@@ -798,13 +833,27 @@ public class Repository {
         private void backtrack(ConflictGroup group, ConflictContext context) throws UnsolvableVersionConflictException {
             group.winner = null;
 
-            for (Iterator<ConflictItem> it = group.candidates.iterator(); it.hasNext();) {
-                ConflictItem candidate = it.next();
+            if (highest) {
+                // The versions are sorted in descending order, so the first acceptable one wins.
+                // Rejected versions can never be accepted again because constraints only grow.
+                for (Iterator<List<ConflictItem>> it = group.versions.values().iterator(); it.hasNext();) {
+                    List<ConflictItem> items = it.next();
 
-                if (!isAcceptableByConstraints(group, candidate.getNode().getVersion())) {
+                    if (group.accepts(items.get(0).getNode().getVersion())) {
+                        group.winner = items.get(0);
+                        break;
+                    }
                     it.remove();
-                } else if (group.winner == null || selectionStrategy.test(candidate, group.winner)) {
-                    group.winner = candidate;
+                }
+            } else {
+                for (Iterator<ConflictItem> it = group.candidates.iterator(); it.hasNext();) {
+                    ConflictItem candidate = it.next();
+
+                    if (!group.accepts(candidate.getNode().getVersion())) {
+                        it.remove();
+                    } else if (group.winner == null || selectionStrategy.test(candidate, group.winner)) {
+                        group.winner = candidate;
+                    }
                 }
             }
 
@@ -815,22 +864,88 @@ public class Repository {
             }
         }
 
-        private boolean isAcceptableByConstraints(ConflictGroup group, Version version) {
-            for (VersionConstraint constraint : group.constraints) {
-                if (!constraint.containsVersion(version)) {
-                    return false;
-                }
-            }
-            return true;
+        /**
+         * Check whether the specified constraint contains the given version or not. The result is
+         * shared between all conflict groups because the same ranges are evaluated repeatedly on
+         * the large graph.
+         * 
+         * @param constraint A version constraint.
+         * @param version A target version.
+         * @return Result.
+         */
+        private boolean contains(VersionConstraint constraint, Version version) {
+            Map<Version, Boolean> results = containments.computeIfAbsent(constraint, key -> new ConcurrentHashMap());
+            return results.computeIfAbsent(version, constraint::containsVersion);
         }
 
-        private static class ConflictGroup {
+        private class ConflictGroup {
 
             private final Set<VersionConstraint> constraints = new HashSet();
 
             private final List<ConflictItem> candidates = new ArrayList();
 
+            /** The candidates grouped by version in descending order. */
+            private final TreeMap<Version, List<ConflictItem>> versions = new TreeMap(Comparator.reverseOrder());
+
+            /** The memoized intersection of all constraints for each version. */
+            private final Map<Version, Boolean> accepted = new HashMap();
+
             private ConflictItem winner;
+
+            /**
+             * Add the acceptable candidate.
+             * 
+             * @param candidate
+             */
+            private void add(ConflictItem candidate) {
+                if (highest) {
+                    versions.computeIfAbsent(candidate.getNode().getVersion(), key -> new ArrayList()).add(candidate);
+                } else {
+                    candidates.add(candidate);
+                }
+            }
+
+            /**
+             * Narrow this group by the specified constraint.
+             * 
+             * @param constraint
+             * @return True if the constraint is new for this group.
+             */
+            private boolean constrain(VersionConstraint constraint) {
+                if (!constraints.add(constraint)) {
+                    return false;
+                }
+
+                // Only the new constraint needs to be evaluated against the memoized intersection.
+                for (Entry<Version, Boolean> entry : accepted.entrySet()) {
+                    if (entry.getValue() && !contains(constraint, entry.getKey())) {
+                        entry.setValue(false);
+                    }
+                }
+                return true;
+            }
+
+            /**
+             * Check whether the specified version satisfies all constraints of this group.
+             * 
+             * @param version
+             * @return
+             */
+            private boolean accepts(Version version) {
+                Boolean result = accepted.get(version);
+
+                if (result == null) {
+                    result = true;
+                    for (VersionConstraint constraint : constraints) {
+                        if (!contains(constraint, version)) {
+                            result = false;
+                            break;
+                        }
+                    }
+                    accepted.put(version, result);
+                }
+                return result;
+            }
         }
     }
 
@@ -0,0 +1,336 @@
+/*
+ * Copyright (C) 2024 The BEE Development Team
+ *
+ * Licensed under the MIT License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          https://opensource.org/licenses/MIT
+ */
+package bee.api;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.spi.connector.transport.GetTask;
+import org.eclipse.aether.spi.connector.transport.Transporter;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import kiss.I;
+import psychopath.Directory;
+import psychopath.Locator;
+
+/**
+ * Caching proxy server which exposes the local repository over HTTP in Maven layout. The missing
+ * resources are fetched from the upstream repositories and are cached in the local repository, so
+ * other machines can share one warm repository.
+ */
+public class RepositoryServer {
+
+    /** The date format for HTTP headers. */
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.RFC_1123_DATE_TIME;
+
+    /** The root directory of the local repository. */
+    private final Path root;
+
+    /** The access index of the local repository. */
+    private final AccessIndex index;
+
+    /** The shared blob store. */
+    private final BlobStore store;
+
+    /** The upstream transporters in priority order. (repository id → transporter) */
+    private final Map<String, Transporter> upstreams = new LinkedHashMap();
+
+    /** The lock for each resource location, the concurrent requests are fetched only once. */
+    private final Map<String, Object> locks = new ConcurrentHashMap();
+
+    /** The refresh interval (ms) of the mutable resources like maven-metadata.xml. */
+    private final long refresh;
+
+    /** The running server. */
+    private HttpServer server;
+
+    /**
+     * Build the proxy server.
+     * 
+     * @param root The local repository.
+     * @param upstreams The upstream repositories.
+     * @param refresh The refresh interval (ms) of the mutable resources.
+     * @param store The shared blob store.
+     */
+    RepositoryServer(Directory root, List<RemoteRepository> upstreams, long refresh, BlobStore store) {
+        this.root = root.absolutize().asJavaPath().normalize();
+        this.index = AccessIndex.of(root);
+        this.refresh = refresh;
+        this.store = store;
+
+        FastTransporter factory = new FastTransporter();
+        for (RemoteRepository upstream : upstreams) {
+            try {
+                String url = upstream.getUrl();
+                if (!url.endsWith("/")) {
+                    upstream = new RemoteRepository.Builder(upstream).setUrl(url + "/").build();
+                }
+                this.upstreams.put(upstream.getId(), factory.newInstance(upstream, store));
+            } catch (Exception e) {
+                throw I.quiet(e);
+            }
+        }
+    }
+
+    /**
+     * Start serving on the specified port.
+     * 
+     * @param port A port number. Zero means any free port.
+     * @return Chainable API.
+     */
+    public synchronized RepositoryServer start(int port) {
+        if (server == null) {
+            try {
+                server = HttpServer.create(new InetSocketAddress(port), 0);
+                server.createContext("/", this::handle);
+                server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+                server.start();
+            } catch (IOException e) {
+                throw I.quiet(e);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Stop serving.
+     */
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+            index.store();
+        }
+    }
+
+    /**
+     * Get the actual port number.
+     * 
+     * @return The port number or -1 if the server is not running.
+     */
+    public synchronized int port() {
+        return server == null ? -1 : server.getAddress().getPort();
+    }
+
+    /**
+     * Handle the request.
+     * 
+     * @param exchange
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            String location = exchange.getRequestURI().getPath().replaceFirst("^/+", "");
+            Path file = root.resolve(location).normalize();
+            if (location.isEmpty() || location.endsWith("/") || !file.startsWith(root) || file.equals(root) || !locate(location, file)) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            long size = Files.size(file);
+            Instant modified = Files.getLastModifiedTime(file).toInstant();
+            String tag = "\"" + Long.toHexString(size) + "-" + Long.toHexString(modified.toEpochMilli()) + "\"";
+
+            Headers headers = exchange.getResponseHeaders();
+            headers.set("ETag", tag);
+            headers.set("Last-Modified", HTTP_DATE.format(ZonedDateTime.ofInstant(modified, ZoneOffset.UTC)));
+            headers.set("Content-Type", location.endsWith(".pom") || location.endsWith(".xml") ? "application/xml" : "application/octet-stream");
+
+            if (notModified(exchange.getRequestHeaders(), tag, modified)) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+
+            if (method.equals("HEAD")) {
+                headers.set("Content-Length", String.valueOf(size));
+                exchange.sendResponseHeaders(200, -1);
+            } else {
+                exchange.sendResponseHeaders(200, size == 0 ? -1 : size);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    Files.copy(file, out);
+                }
+            }
+        } catch (Throwable e) {
+            exchange.sendResponseHeaders(500, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Evaluate the conditional request headers.
+     * 
+     * @param request The request headers.
+     * @param tag The current entity tag.
+     * @param modified The current modified time.
+     * @return True if the client has the current resource.
+     */
+    private boolean notModified(Headers request, String tag, Instant modified) {
+        String match = request.getFirst("If-None-Match");
+        if (match != null) {
+            for (String candidate : match.split(",")) {
+                candidate = candidate.strip();
+                if (candidate.equals("*") || candidate.equals(tag) || candidate.equals("W/" + tag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        String since = request.getFirst("If-Modified-Since");
+        if (since != null) {
+            try {
+                return modified.getEpochSecond() <= ZonedDateTime.parse(since, HTTP_DATE).toEpochSecond();
+            } catch (Exception e) {
+                // ignore malformed date
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Make the specified resource available in the local repository.
+     * 
+     * @param location A resource location in Maven layout.
+     * @param file The resource file in the local repository.
+     * @return True if the resource is available.
+     */
+    private boolean locate(String location, Path file) {
+        if (fresh(location, file)) {
+            index.touch(Locator.file(file));
+            return true;
+        }
+
+        synchronized (locks.computeIfAbsent(location, key -> new Object())) {
+            try {
+                if (fresh(location, file) || fetch(location, file)) {
+                    index.touch(Locator.file(file));
+                    return true;
+                }
+
+                // serve the stale resource if all upstreams are unavailable
+                return Files.isRegularFile(file);
+            } finally {
+                locks.remove(location);
+            }
+        }
+    }
+
+    /**
+     * Check whether the cached resource can be served as it is.
+     * 
+     * @param location A resource location in Maven layout.
+     * @param file The resource file in the local repository.
+     * @return Result.
+     */
+    private boolean fresh(String location, Path file) {
+        try {
+            if (!Files.isRegularFile(file)) {
+                return false;
+            }
+
+            if (location.contains("maven-metadata") || location.contains("SNAPSHOT")) {
+                return System.currentTimeMillis() - Files.getLastModifiedTime(file).toMillis() < refresh;
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Fetch the specified resource from the upstream repositories.
+     * 
+     * @param location A resource location in Maven layout.
+     * @param file The destination file in the local repository.
+     * @return True if any upstream has the resource.
+     */
+    private boolean fetch(String location, Path file) {
+        for (Map.Entry<String, Transporter> upstream : upstreams.entrySet()) {
+            Path temp = null;
+            try {
+                Files.createDirectories(file.getParent());
+                temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".part");
+
+                GetTask task = new GetTask(URI.create(location)).setDataFile(temp.toFile());
+                upstream.getValue().get(task);
+                boolean verified = verify(temp, task.getChecksums());
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+                // share only the resource which is verified by the checksum of upstream
+                if (verified && BlobStore.accept(location)) {
+                    store.store(upstream.getKey(), location, file);
+                }
+                return true;
+            } catch (Throwable e) {
+                // try the next upstream
+            } finally {
+                if (temp != null) {
+                    try {
+                        Files.deleteIfExists(temp);
+                    } catch (IOException e) {
+                        // ignore
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Verify the downloaded file by the checksums which are provided by the upstream.
+     * 
+     * @param file The downloaded file.
+     * @param checksums The provided checksums. (algorithm → hex digest)
+     * @return True if the file matches all checksums, false if no checksum is provided.
+     * @throws IOException If the file doesn't match the checksum.
+     */
+    private static boolean verify(Path file, Map<String, String> checksums) throws IOException {
+        for (Map.Entry<String, String> checksum : checksums.entrySet()) {
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance(checksum.getKey());
+            } catch (NoSuchAlgorithmException e) {
+                throw I.quiet(e);
+            }
+            String actual = HexFormat.of().formatHex(digest.digest(Files.readAllBytes(file)));
+            if (!actual.equalsIgnoreCase(checksum.getValue())) {
+                throw new IOException("Checksum mismatch [" + file + "] " + checksum.getKey() + " " + actual);
+            }
+        }
+        return !checksums.isEmpty();
+    }
+}
\ No newline at end of file
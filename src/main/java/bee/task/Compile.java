@@ -9,10 +9,15 @@
  */
 package bee.task;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 import bee.Task;
 import bee.api.Command;
 import bee.api.Scope;
 import bee.util.JavaCompiler;
+import bee.util.ResourceSync;
+import kiss.I;
 import kiss.Signal;
 import psychopath.Directory;
 import psychopath.Locator;
@@ -22,12 +27,24 @@ public class Compile extends Task {
     /** Force to use the eclipse compiler for Java. */
     public boolean useECJ = false;
 
+    /**
+     * Compile test sources against the header classes of main sources, so the test compilation
+     * runs in parallel with the main compilation.
+     */
+    public boolean pipeline = false;
+
+    /**
+     * The minimum size (bytes) of resources which are hard linked to the output instead of copying.
+     * The linked resource must not be modified in the output. Negative value disables linking.
+     */
+    public long linkResources = -1;
+
     /**
      * Compile main sources and copy other resources.
      */
     @Command(value = "Compile main sources and copy other resources.", defaults = true)
     public void source() {
-        compile("main", project.getSourceSet(), project.getClasses());
+        compile("main", project.getSourceSet(), project.getClasses(), project.getClasses());
     }
 
     /**
@@ -35,9 +52,36 @@ public class Compile extends Task {
      */
     @Command("Compile test sources and copy other resources.")
     public void test() {
-        require(Compile::source);
+        if (pipeline) {
+            CompletableFuture<Void> main = CompletableFuture.runAsync(() -> require(Compile::source));
 
-        compile("test", project.getTestSourceSet(), project.getTestClasses());
+            try {
+                Directory header = project.getOutput().directory("header-classes");
+                ui.info("Compiling main headers to ", header);
+
+                JavaCompiler.with(ui)
+                        .addClassPath(project.getDependency(Scope.Compile, Scope.Test, Scope.Annotation))
+                        .addSourceDirectory(project.getSourceSet())
+                        .setVersion(project.getJavaClassVersion())
+                        .setOutput(header)
+                        .setNoWarn()
+                        .setEncoding(project.getEncoding())
+                        .setHeaderOnly(true)
+                        .compile();
+
+                compile("test", project.getTestSourceSet(), project.getTestClasses(), header);
+            } finally {
+                try {
+                    main.join();
+                } catch (CompletionException e) {
+                    throw I.quiet(e.getCause());
+                }
+            }
+        } else {
+            require(Compile::source);
+
+            compile("test", project.getTestSourceSet(), project.getTestClasses(), project.getClasses());
+        }
     }
 
     /**
@@ -45,7 +89,7 @@ public class Compile extends Task {
      */
     @Command("Compile project sources and copy other resources.")
     public void project() {
-        compile("project", project.getProjectSourceSet(), project.getProjectClasses());
+        compile("project", project.getProjectSourceSet(), project.getProjectClasses(), project.getClasses());
     }
 
     /**
@@ -53,10 +97,14 @@ public class Compile extends Task {
      */
     @Command(value = "Compile main sources and copy other resources.", defaults = true)
     public void check() {
-        Directory dir = Locator.temporaryDirectory();
-        compile("main", project.getSourceSet(), dir);
-        compile("test", project.getTestSourceSet(), dir);
-        dir.deleteOnExit();
+        Directory temporary = Locator.temporaryDirectory();
+        Directory main = temporary.directory("classes");
+        Directory test = temporary.directory("test-classes");
+
+        // each output has its own compilation index
+        compile("main", project.getSourceSet(), main, main);
+        compile("test", project.getTestSourceSet(), test, main);
+        temporary.deleteOnExit();
     }
 
     /**
@@ -65,26 +113,41 @@ public class Compile extends Task {
      * @param type A source type.
      * @param input A source locations.
      * @param output A output location.
+     * @param upstream The compiled main classes.
      */
-    private void compile(String type, Signal<Directory> input, Directory output) {
-        ui.info("Copying ", type, " resources to ", output);
-        input.to(dir -> {
-            dir.observeCopyingTo(output, o -> o.glob("**", "!**.java").strip()).skipError().to();
-        });
+    private void compile(String type, Signal<Directory> input, Directory output, Directory upstream) {
+        // synchronize resources while resolving the classpath
+        CompletableFuture<ResourceSync.Result> resources = CompletableFuture
+                .supplyAsync(() -> new ResourceSync(output, type).link(linkResources).sync(input));
 
-        ui.info("Compiling ", type, " sources to ", output);
+        JavaCompiler compiler;
+        try {
+            compiler = JavaCompiler.with(ui)
+                    .addClassPath(output)
+                    .addClassPath(upstream)
+                    .addClassPath(project.getDependency(Scope.Compile, Scope.Test, Scope.Annotation))
+                    .addSourceDirectory(input)
+                    .setVersion(type.equals("main") ? project.getJavaClassVersion() : project.getJavaSourceVersion())
+                    .setOutput(output)
+                    .setNoWarn()
+                    .setEncoding(project.getEncoding())
+                    .setEclipseCompiler(useECJ);
+        } finally {
+            // The annotation processors can read resources from the output directory (e.g. via
+            // Filer#getResource), so javac must not start until all resources are in place.
+            try {
+                ResourceSync.Result result = resources.join();
+                if (result.copied() != 0 || result.deleted() != 0) {
+                    ui.info("Synchronized ", type, " resources to ", output, " (copied ", result.copied(), ", deleted ", result
+                            .deleted(), ", unchanged ", result.unchanged(), ")");
+                }
+            } catch (CompletionException e) {
+                throw I.quiet(e.getCause());
+            }
+        }
 
-        JavaCompiler.with(ui)
-                .addClassPath(output)
-                .addClassPath(project.getClasses())
-                .addClassPath(project.getDependency(Scope.Compile, Scope.Test, Scope.Annotation))
-                .addSourceDirectory(input)
-                .setVersion(type.equals("main") ? project.getJavaClassVersion() : project.getJavaSourceVersion())
-                .setOutput(output)
-                .setNoWarn()
-                .setEncoding(project.getEncoding())
-                .setEclipseCompiler(useECJ)
-                .compile();
+        ui.info("Compiling ", type, " sources to ", output);
+        compiler.compile();
 
         // load project related classes
         // BeeLoader.load(project.getClasses());
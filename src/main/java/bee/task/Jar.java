@@ -10,8 +10,18 @@
 package bee.task;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.jar.Attributes.Name;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
 
 import javax.lang.model.SourceVersion;
 
@@ -24,11 +34,17 @@ import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.TypePath;
 
+import bee.Fail;
+import bee.Platform;
 import bee.Task;
 import bee.api.Command;
 import bee.api.Library;
 import bee.api.Scope;
 import bee.util.Inputs;
+import bee.util.JarWriter;
+import bee.util.JarWriter.Duplicate;
+import bee.util.JarWriter.Transformer;
+import bee.util.Shrinker;
 import kiss.I;
 import kiss.Signal;
 import psychopath.Directory;
@@ -55,11 +71,64 @@ public class Jar extends Task {
      */
     public Function<Option, Option> packing = Function.identity();
 
+    /**
+     * Update the existing jar incrementally, the unchanged entries are copied without compression.
+     */
+    public boolean incremental = true;
+
+    /**
+     * Build the reproducible jar, the identical inputs produce the byte-identical jar. This is
+     * enabled automatically if the environment variable SOURCE_DATE_EPOCH is defined.
+     */
+    public boolean reproducible = false;
+
+    /**
+     * Package for the local development. The entries are stored without compression and the
+     * source jar is skipped.
+     */
+    public boolean dev = false;
+
+    /**
+     * In the development packaging, the launcher jar ("-launcher" classifier) refers the main jar
+     * and the hard-linked dependency jars in the "lib" directory by its manifest Class-Path instead
+     * of merging them. The main jar is left as it is.
+     */
+    public boolean linkLibraries = true;
+
     /**
      * Configure how to handle merged resources when merging dependent jars.
      */
     public Function<Option, Option> merging = Function.identity();
 
+    /**
+     * Configure how to handle the duplicated entries when merging dependent jars.
+     */
+    public Duplicate duplicate = Duplicate.First;
+
+    /**
+     * Remove the unreachable classes and resources when merging dependent jars. The classes are
+     * traced from main, premain, agentmain, service providers and {@link kiss.Extensible}
+     * implementations.
+     */
+    public boolean shrink = false;
+
+    /**
+     * The class name patterns to keep when shrinking, the classes accessed by reflection must be
+     * specified. (e.g. "com.example.model.*", "com.example.plugin.**")
+     */
+    public List<String> keep = new ArrayList();
+
+    /**
+     * The arguments of the training run for the class data sharing archive.
+     */
+    public List<String> trainingArguments = new ArrayList();
+
+    /**
+     * The maximum time (seconds) of the training run, the application is terminated after this
+     * time. Zero means to wait for the exit of the application.
+     */
+    public int trainingTime = 0;
+
     /**
      * Package main classes and other resources.
      */
@@ -67,22 +136,23 @@ public class Jar extends Task {
     public void source() {
         require(Compile::source);
 
-        Directory dir = project.getClasses();
+        Transformer modification = null;
         if (SourceVersion.latest().compareTo(project.getJavaClassVersion()) > 0 || removeTraceInfo || removeDebugInfo) {
-            dir = modify(dir);
+            modification = modify();
         }
 
-        pack("main classe", I.signal(dir), project.locateJar(), packing);
-        pack("main source", project.getSourceSet(), project.locateSourceJar(), null);
+        pack("main classe", I.signal(project.getClasses()), project.locateJar(), packing, modification);
+        if (!dev) {
+            pack("main source", project.getSourceSet(), project.locateSourceJar(), null, null);
+        }
     }
 
     /**
-     * Modify class files.
+     * Build the modification of class files.
      * 
-     * @param dir
      * @return
      */
-    private Directory modify(Directory dir) {
+    private Transformer modify() {
         String oldVersion = Inputs.normalize(SourceVersion.latest());
         String newVersion = Inputs.normalize(project.getJavaClassVersion());
         if (!oldVersion.equals(newVersion)) {
@@ -95,17 +165,57 @@ public class Jar extends Task {
             ui.info("Remove all debugging-related information (source file name and line number) from the class file.");
         }
 
+        SourceVersion version = project.getJavaClassVersion();
+        String id = "modify " + version + " " + removeDebugInfo + " " + removeTraceInfo;
+
+        return new Transformer() {
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public boolean accept(String name) {
+                return name.endsWith(".class");
+            }
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public String id() {
+                return id;
+            }
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public byte[] transform(byte[] bytes) {
+                ClassReader classReader = new ClassReader(bytes);
+                ClassWriter writer = new ClassWriter(classReader, 0);
+                ClassVisitor modification = new Modify(version, writer);
+                classReader.accept(modification, 0);
+                return writer.toByteArray();
+            }
+        };
+    }
+
+    /**
+     * Transform files into the temporary directory.
+     * 
+     * @param dir
+     * @param transformer
+     * @return
+     */
+    private Directory transform(Directory dir, Transformer transformer) {
         Directory modified = Locator.temporaryDirectory();
 
         dir.walkFile().to(file -> {
             File modifiedFile = modified.file(dir.relativize(file));
+            String name = dir.relativize(file).toString().replace('\\', '/');
 
-            if (file.extension().equals("class")) {
-                ClassReader classReader = new ClassReader(file.bytes());
-                ClassWriter writer = new ClassWriter(classReader, 0);
-                ClassVisitor modification = new Modify(project.getJavaClassVersion(), writer);
-                classReader.accept(modification, 0);
-                modifiedFile.writeFrom(new ByteArrayInputStream(writer.toByteArray()));
+            if (transformer.accept(name)) {
+                modifiedFile.writeFrom(new ByteArrayInputStream(transformer.transform(file.bytes())));
             } else {
                 file.copyTo(modifiedFile);
             }
@@ -124,8 +234,8 @@ public class Jar extends Task {
         File classes = project.getOutput().file(project.getProduct() + "-" + project.getVersion() + "-tests.jar");
         File sources = project.getOutput().file(project.getProduct() + "-" + project.getVersion() + "-tests-sources.jar");
 
-        pack("test class", I.signal(project.getTestClasses()), classes, null);
-        pack("test source", project.getTestSourceSet(), sources, null);
+        pack("test class", I.signal(project.getTestClasses()), classes, null, null);
+        pack("test source", project.getTestSourceSet(), sources, null, null);
     }
 
     /**
@@ -138,8 +248,8 @@ public class Jar extends Task {
         File classes = project.getOutput().file(project.getProduct() + "-" + project.getVersion() + "-projects.jar");
         File sources = project.getOutput().file(project.getProduct() + "-" + project.getVersion() + "-projects-sources.jar");
 
-        pack("project class", I.signal(project.getProjectClasses()), classes, null);
-        pack("project source", project.getProjectSourceSet(), sources, null);
+        pack("project class", I.signal(project.getProjectClasses()), classes, null, null);
+        pack("project source", project.getProjectSourceSet(), sources, null, null);
     }
 
     /**
@@ -149,7 +259,7 @@ public class Jar extends Task {
     public void document() {
         Directory output = require(Doc::javadoc);
 
-        pack("javadoc", I.signal(output), project.locateJavadocJar(), null);
+        pack("javadoc", I.signal(output), project.locateJavadocJar(), null, null);
     }
 
     /**
@@ -158,10 +268,31 @@ public class Jar extends Task {
      * @param type
      * @param input
      * @param output
+     * @param option
+     * @param transformer
      */
-    private void pack(String type, Signal<Directory> input, File output, Function<Option, Option> option) {
+    private void pack(String type, Signal<Directory> input, File output, Function<Option, Option> option, Transformer transformer) {
         input = input.skipNull();
-        option = option == null ? Function.identity() : option;
+
+        if (option == null || option == Function.identity()) {
+            JarWriter writer = new JarWriter().incremental(incremental).store(dev).transform(transformer);
+            if (reproducible) {
+                writer.reproducible(true);
+            }
+            if (transformer != null) {
+                writer.cache(project.getOutput().directory(output.base() + ".transform"));
+            }
+            for (Directory dir : input.toList()) {
+                writer.addDirectory(dir);
+            }
+            writer.write(output);
+            ui.info("Build " + type + " jar: ", output, " (", Inputs.formatAsSize(output.size()), ")");
+            return;
+        }
+
+        if (transformer != null) {
+            input = input.map(dir -> transform(dir, transformer));
+        }
 
         Locator.folder()
                 .add(input, option.andThen(Option::strip))
@@ -176,20 +307,101 @@ public class Jar extends Task {
     public void merge() {
         require(Jar::source);
 
+        String main = require(FindMain::main);
+        String agentmain = require(FindMain::agentmain);
+        String premain = require(FindMain::premain);
+
         // create manifest
         File manifest = Locator.temporaryFile("MANIFEST.MF").text(
                 /* Manifest contents */
                 Name.MANIFEST_VERSION + ": 1.0", // version must be first
-                Name.MAIN_CLASS + ": " + require(FindMain::main), // detect main class
-                "Launcher-Agent-Class: " + require(FindMain::agentmain), // detect agent main class
-                "Agent-Class: " + require(FindMain::agentmain), // detect agent main class
-                "Premain-Class: " + require(FindMain::premain) // detect pre main class
+                Name.MAIN_CLASS + ": " + main, // detect main class
+                "Launcher-Agent-Class: " + agentmain, // detect agent main class
+                "Agent-Class: " + agentmain, // detect agent main class
+                "Premain-Class: " + premain // detect pre main class
         );
 
         File output = project.locateJar();
+
+        if (dev && linkLibraries) {
+            Directory lib = output.parent().directory("lib");
+            List<String> classpath = new ArrayList();
+            classpath.add(output.name());
+            try {
+                Files.createDirectories(lib.asJavaPath());
+                for (Library library : project.getDependency(Scope.Runtime)) {
+                    Path source = library.getLocalJar().asJavaPath();
+                    Path link = lib.asJavaPath().resolve(source.getFileName());
+                    if (Files.notExists(link) || !Files.isSameFile(source, link)) {
+                        Files.deleteIfExists(link);
+                        try {
+                            Files.createLink(link, source);
+                        } catch (IOException | UnsupportedOperationException e) {
+                            // different file system
+                            Files.copy(source, link);
+                        }
+                    }
+                    classpath.add(lib.name() + "/" + link.getFileName());
+                }
+
+                // remove the unused libraries
+                try (Stream<Path> files = Files.list(lib.asJavaPath())) {
+                    for (Path file : files.toList()) {
+                        if (!classpath.contains(lib.name() + "/" + file.getFileName())) {
+                            Files.deleteIfExists(file);
+                        }
+                    }
+                }
+
+                // the last line must be terminated
+                Manifest attributes = new Manifest(new ByteArrayInputStream((Files.readString(manifest.asJavaPath()) + "\n").getBytes()));
+                attributes.getMainAttributes().put(Name.CLASS_PATH, String.join(" ", classpath));
+                try (OutputStream out = Files.newOutputStream(manifest.asJavaPath())) {
+                    attributes.write(out);
+                }
+            } catch (IOException e) {
+                throw I.quiet(e);
+            }
+
+            File launcher = locateMergedJar();
+            new JarWriter().store(true).addFile(manifest, "META-INF/MANIFEST.MF").write(launcher);
+            ui.info("Build launcher jar: ", launcher, " (", Inputs.formatAsSize(launcher.size()), ")");
+            return;
+        }
+
         File temp = Locator.temporaryFile();
         output.moveTo(temp);
 
+        if (merging == Function.identity()) {
+            JarWriter writer = new JarWriter().duplicate(duplicate).store(dev).addFile(manifest, "META-INF/MANIFEST.MF").addArchive(temp);
+            if (reproducible) {
+                writer.reproducible(true);
+            }
+            for (Library library : project.getDependency(Scope.Runtime)) {
+                writer.addArchive(library.getLocalJar());
+            }
+
+            Shrinker shrinker = null;
+            if (shrink) {
+                shrinker = new Shrinker().root(main).root(agentmain).root(premain);
+                for (String pattern : keep) {
+                    shrinker.keep(pattern);
+                }
+                writer.shrink(shrinker);
+            }
+
+            writer.write(output);
+            if (shrinker != null) {
+                ui.info("Remove ", shrinker.removed(), " unreachable entries.");
+            }
+            ui.info("Build merged classes jar: ", output, " (", Inputs.formatAsSize(output.size()), ")");
+            return;
+        }
+
+        if (shrink) {
+            ui.warn("Shrinking is not supported with the custom merging option.");
+        }
+
         Folder folder = Locator.folder();
         folder.add(temp.asArchive());
         folder.add(manifest, o -> o.allocateIn("META-INF"));
@@ -200,6 +412,78 @@ public class Jar extends Task {
         folder.trackPackingTo(output).to(Inputs.observerFor(ui, output, "Merging class files", "Build merged classes jar"));
     }
 
+    /**
+     * Generate the class data sharing archive by the training run of the merged jar.
+     */
+    @Command("Generate the class data sharing archive of the merged jar and its launcher.")
+    public File cds() {
+        require(Jar::merge);
+
+        File jar = locateMergedJar();
+        File archive = jar.parent().file(jar.base() + ".jsa");
+        archive.delete();
+
+        List<String> command = new ArrayList();
+        command.add(Platform.Java.path());
+        command.add("-XX:ArchiveClassesAtExit=" + archive.path());
+        command.add("-jar");
+        command.add(jar.path());
+        command.addAll(trainingArguments);
+
+        ui.info("Run the training to record the loaded classes.");
+        try {
+            java.lang.Process process = new ProcessBuilder(command).directory(project.getRoot().asJavaPath().toFile()).inheritIO().start();
+            if (0 < trainingTime && !process.waitFor(trainingTime, TimeUnit.SECONDS)) {
+                // the archive is dumped by the graceful termination
+                process.destroy();
+            }
+            process.waitFor();
+        } catch (IOException | InterruptedException e) {
+            throw I.quiet(e);
+        }
+
+        if (archive.isAbsent()) {
+            throw new Fail("Fail to generate the class data sharing archive.").solve("Make sure that the application exits normally in the training run.")
+                    .solve("Configure the training time by the property 'trainingTime' for the long-running application.");
+        }
+
+        // launchers
+        File shell = jar.parent()
+                .file(project.getProduct())
+                .text("#!/bin/sh", "DIR=$(cd \"$(dirname \"$0\")\" && pwd)", "exec " + launch("$DIR/", jar, archive) + " \"$@\"");
+        jar.parent().file(project.getProduct() + ".cmd").text("@echo off", launch("%~dp0", jar, archive) + " %*");
+        try {
+            Files.setPosixFilePermissions(shell.asJavaPath(), PosixFilePermissions.fromString("rwxr-xr-x"));
+        } catch (UnsupportedOperationException | IOException e) {
+            // non-posix file system
+        }
+
+        ui.info("Build class data sharing archive: ", archive, " (", Inputs.formatAsSize(archive.size()), ")");
+        return archive;
+    }
+
+    /**
+     * Locate the executable jar which is built by {@link #merge()}.
+     * 
+     * @return The merged jar, or the launcher jar in the development packaging.
+     */
+    private File locateMergedJar() {
+        File jar = project.locateJar();
+        return dev && linkLibraries ? jar.parent().file(jar.base() + "-launcher.jar") : jar;
+    }
+
+    /**
+     * Build the launch command with the class data sharing archive.
+     * 
+     * @param directory The directory variable of launcher script.
+     * @param jar The application jar.
+     * @param archive The class data sharing archive.
+     * @return The command.
+     */
+    private String launch(String directory, File jar, File archive) {
+        return "java -XX:SharedArchiveFile=\"" + directory + archive.name() + "\" -Xshare:auto -jar \"" + directory + jar.name() + "\"";
+    }
+
     /**
      * 
      */
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2024 The BEE Development Team
+ *
+ * Licensed under the MIT License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          https://opensource.org/licenses/MIT
+ */
+package bee.task;
+
+import bee.Bee;
+import bee.Task;
+import bee.api.AccessIndex;
+import bee.api.Command;
+import bee.api.RepositoryServer;
+import bee.api.Scope;
+import bee.util.Java;
+import bee.util.Java.JVM;
+import kiss.I;
+import psychopath.Directory;
+import psychopath.Locator;
+
+public class Repository extends Task {
+
+    /** The maximum size (MB) of the local repository. */
+    public long budget = 8 * 1024;
+
+    /** Evict the least recently used artifacts in the background process after each build. */
+    public boolean collectAfterBuild = false;
+
+    /** The port number of the proxy server. */
+    public int port = 8091;
+
+    /** The refresh interval (minutes) of the mutable resources like maven-metadata.xml. */
+    public int refresh = 30;
+
+    /**
+     * Evict the least recently used artifacts from the local repository.
+     */
+    @Command("Evict the least recently used artifacts from the local repository.")
+    public void gc() {
+        // All artifacts resolved by the current project are marked as used in this session.
+        project.getDependency(Scope.values());
+
+        AccessIndex.of(localRepository()).evict(budget * 1024 * 1024, AccessIndex.SESSION, ui);
+    }
+
+    /**
+     * Serve the local repository over HTTP as the caching proxy of all remote repositories.
+     */
+    @Command("Serve the local repository over HTTP as the caching proxy.")
+    public void serve() {
+        RepositoryServer server = I.make(bee.api.Repository.class).serve(port, refresh * 60 * 1000L);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+
+        ui.info("Serving the local repository [", localRepository(), "] at http://localhost:", server.port(), "/");
+        ui.info("Other projects can use this proxy by repository(\"http://<this host>:", server.port(), "/\") in their project definitions.");
+
+        try {
+            Thread.currentThread().join();
+        } catch (InterruptedException e) {
+            server.stop();
+        }
+    }
+
+    /**
+     * Launch the garbage collection of the local repository in the background process if needed.
+     */
+    public void collectInBackground() {
+        if (collectAfterBuild) {
+            try {
+                AccessIndex.of(localRepository()).store();
+
+                Java.with()
+                        .classPath(Bee.class)
+                        .inParallel(true)
+                        .run(Collector.class, localRepository().absolutize(), budget * 1024 * 1024, AccessIndex.SESSION);
+            } catch (Throwable e) {
+                // the garbage collection is only a housekeeping, it must not fail the build
+                ui.warn("Fail to collect the local repository [", localRepository(), "] : ", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Locate the current local repository.
+     * 
+     * @return
+     */
+    private Directory localRepository() {
+        return I.make(bee.api.Repository.class).getLocalRepository();
+    }
+
+    /**
+     * Background garbage collector.
+     */
+    private static final class Collector extends JVM {
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected void process() throws Exception {
+            AccessIndex.of(Locator.directory(args[0])).evict(Long.parseLong(args[1]), Long.parseLong(args[2]), null);
+        }
+    }
+}
\ No newline at end of file
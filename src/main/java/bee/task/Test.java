@@ -9,17 +9,33 @@
  */
 package bee.task;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.logging.Handler;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
+import org.junit.platform.engine.FilterResult;
 import org.junit.platform.engine.TestExecutionResult;
+import org.junit.platform.engine.discovery.ClassNameFilter;
 import org.junit.platform.engine.discovery.DiscoverySelectors;
 import org.junit.platform.engine.support.descriptor.ClassSource;
 import org.junit.platform.launcher.LauncherDiscoveryRequest;
@@ -40,6 +56,7 @@ import bee.util.Java;
 import bee.util.Java.JVM;
 import kiss.I;
 import psychopath.Directory;
+import psychopath.File;
 
 public class Test extends Task {
 
@@ -52,6 +69,12 @@ public class Test extends Task {
     /** The additional paramters for the test execution JVM. */
     public List<String> params = new ArrayList();
 
+    /**
+     * The number of JVMs to execute the tests in parallel. The test classes are balanced across the
+     * JVMs by the execution time recorded in the previous run.
+     */
+    public int forks = 1;
+
     @Command("Test product codes.")
     public void test() {
         require(Compile::test);
@@ -64,23 +87,244 @@ public class Test extends Task {
         } else {
             new Require("org.junit.platform : junit-platform-engine", "org.junit.platform : junit-platform-launcher") {
                 {
-                    Java.with()
-                            .java(java)
-                            .param(params)
-                            .classPath(project.getClasses())
-                            .classPath(project.getTestClasses())
-                            .classPath(project.getDependency(Scope.Test, Scope.Compile))
-                            .classPath(Bee.class)
-                            .enableAssertion()
-                            .encoding(project.getEncoding())
-                            .workingDirectory(project.getRoot())
-                            .run(Junit.class, project
-                                    .getTestClasses(), project.getOutput().directory("test-reports").create(), showProlongedTest);
+                    Directory reports = project.getOutput().directory("test-reports").create();
+
+                    try {
+                        if (forks <= 1) {
+                            fork(reports, 0, false);
+                        } else {
+                            forks(reports);
+                        }
+                    } finally {
+                        record(reports);
+                    }
                 }
             };
         }
     }
 
+    /**
+     * Execute the tests in the sub process.
+     * 
+     * @param reports The report directory.
+     * @param index The fork index.
+     * @param partial True if the sub process executes the part of tests.
+     */
+    private void fork(Directory reports, int index, boolean partial) {
+        Java.with()
+                .java(java)
+                .param(params)
+                .classPath(project.getClasses())
+                .classPath(project.getTestClasses())
+                .classPath(project.getDependency(Scope.Test, Scope.Compile))
+                .classPath(Bee.class)
+                .enableAssertion()
+                .encoding(project.getEncoding())
+                .workingDirectory(project.getRoot())
+                .run(Junit.class, project.getTestClasses(), reports, showProlongedTest, index, partial);
+    }
+
+    /**
+     * Execute the tests in the multiple sub processes and merge their results.
+     * 
+     * @param reports The report directory.
+     */
+    private void forks(Directory reports) {
+        // group the nested classes with its top level class
+        Path root = project.getTestClasses().asJavaPath();
+        Map<String, List<String>> classes = new TreeMap();
+        project.getTestClasses().walkFile("**.class").to(file -> {
+            String name = root.relativize(file.asJavaPath()).toString().replace('\\', '/');
+            name = name.substring(0, name.length() - 6).replace('/', '.');
+            classes.computeIfAbsent(Junit.top(name), key -> new ArrayList()).add(name);
+        });
+
+        List<List<String>> partitions = partition(classes.keySet(), Junit.read(reports.file("duration.txt").asJavaPath()), forks);
+        if (partitions.size() <= 1) {
+            fork(reports, 0, false);
+            return;
+        }
+        ui.trace("Execute ", classes.size(), " test classes in ", partitions.size(), " JVMs.");
+
+        // remove the results of the aborted execution
+        reports.walkFile("fork-*.result").to(File::delete);
+
+        CompletableFuture[] futures = new CompletableFuture[partitions.size()];
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < futures.length; i++) {
+                int index = i;
+                List<String> names = partitions.get(i).stream().flatMap(name -> classes.get(name).stream()).toList();
+
+                futures[i] = CompletableFuture.runAsync(() -> {
+                    try {
+                        Files.write(reports.file("fork-" + index + ".txt").asJavaPath(), names);
+                    } catch (IOException e) {
+                        throw I.quiet(e);
+                    }
+                    fork(reports, index, true);
+                }, executor);
+            }
+
+            ui.info(Junit.header());
+            CompletableFuture.allOf(futures).join();
+        } catch (CompletionException e) {
+            throw I.quiet(e.getCause());
+        }
+
+        // merge the results
+        ForkResult result = ForkResult.merge(reports.asJavaPath(), futures.length);
+        for (int i = 0; i < futures.length; i++) {
+            reports.file("fork-" + i + ".txt").delete();
+        }
+
+        if (result.shows()) ui.info(Junit.header());
+        ui.info(Junit.buildResult(result.runs(), result.fails(), result.errors(), result.skips(), result.times(), "TOTAL (" + result
+                .suites() + " suites in " + futures.length + " JVMs)"));
+
+        if (result.fails() != 0 || result.errors() != 0) {
+            List<String> messages = new ArrayList(result.errored());
+            messages.addAll(result.failed());
+            throw new Fail("Test has failed.", messages);
+        }
+    }
+
+    /**
+     * Merge the execution time of test classes into the history.
+     * 
+     * @param reports The report directory.
+     */
+    private void record(Directory reports) {
+        Path history = reports.file("duration.txt").asJavaPath();
+        Map<String, Long> durations = new TreeMap(Junit.read(history));
+
+        reports.walkFile("duration-*.txt").to(file -> {
+            durations.putAll(Junit.read(file.asJavaPath()));
+            file.delete();
+        });
+
+        Junit.write(history, durations);
+    }
+
+    /**
+     * Split the test classes into the partitions whose total execution time are balanced. The
+     * longest class is assigned to the shortest partition in order. The class which has no
+     * history is estimated by the average time.
+     * 
+     * @param classes The test classes.
+     * @param durations The execution time (ms) of the test classes.
+     * @param max The maximum number of partitions.
+     * @return The balanced partitions.
+     */
+    static List<List<String>> partition(Collection<String> classes, Map<String, Long> durations, int max) {
+        long average = Math.max(1, (long) durations.values().stream().mapToLong(Long::longValue).average().orElse(1));
+        Map<String, Long> estimates = new HashMap();
+        for (String name : classes) {
+            estimates.put(name, Math.max(1, durations.getOrDefault(name, average)));
+        }
+
+        List<List<String>> partitions = new ArrayList();
+        long[] loads = new long[Math.min(max, classes.size())];
+        for (int i = 0; i < loads.length; i++) {
+            partitions.add(new ArrayList());
+        }
+
+        estimates.entrySet()
+                .stream()
+                .sorted(Map.Entry.<String, Long> comparingByValue(Comparator.reverseOrder()).thenComparing(Map.Entry.comparingByKey()))
+                .forEach(entry -> {
+                    int min = 0;
+                    for (int i = 1; i < loads.length; i++) {
+                        if (loads[i] < loads[min]) min = i;
+                    }
+                    loads[min] += entry.getValue();
+                    partitions.get(min).add(entry.getKey());
+                });
+
+        return partitions;
+    }
+
+    /**
+     * The test result of the sub process which executes the part of tests.
+     */
+    record ForkResult(int suites, int runs, int fails, int errors, int skips, long times, boolean shows, List<String> errored, List<String> failed) {
+
+        /**
+         * Write the result of the specified fork.
+         * 
+         * @param reports The report directory.
+         * @param index The fork index.
+         */
+        void write(Path reports, int index) throws IOException {
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(reports.resolve("fork-" + index + ".result")))) {
+                out.writeInt(suites);
+                out.writeInt(runs);
+                out.writeInt(fails);
+                out.writeInt(errors);
+                out.writeInt(skips);
+                out.writeLong(times);
+                out.writeBoolean(shows);
+                for (List<String> messages : List.of(errored, failed)) {
+                    out.writeInt(messages.size());
+                    for (String message : messages) {
+                        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+                        out.writeInt(bytes.length);
+                        out.write(bytes);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Read and merge the results of all forks, the read result is deleted. The fork which has
+         * exited without its result (e.g. crash or System.exit) is counted as an error.
+         * 
+         * @param reports The report directory.
+         * @param count The number of forks.
+         * @return The merged result.
+         */
+        static ForkResult merge(Path reports, int count) {
+            int suites = 0, runs = 0, fails = 0, errors = 0, skips = 0;
+            long times = 0;
+            boolean shows = false;
+            List<String> errored = new ArrayList();
+            List<String> failed = new ArrayList();
+
+            for (int i = 0; i < count; i++) {
+                Path result = reports.resolve("fork-" + i + ".result");
+                if (Files.notExists(result)) {
+                    errors++;
+                    errored.add("The test JVM #" + i + " has exited without the test result.");
+                    continue;
+                }
+
+                try (DataInputStream in = new DataInputStream(Files.newInputStream(result))) {
+                    suites += in.readInt();
+                    runs += in.readInt();
+                    fails += in.readInt();
+                    errors += in.readInt();
+                    skips += in.readInt();
+                    times += in.readLong();
+                    shows |= in.readBoolean();
+                    for (int j = in.readInt(); 0 < j; j--) {
+                        errored.add(new String(in.readNBytes(in.readInt()), StandardCharsets.UTF_8));
+                    }
+                    for (int j = in.readInt(); 0 < j; j--) {
+                        failed.add(new String(in.readNBytes(in.readInt()), StandardCharsets.UTF_8));
+                    }
+                } catch (IOException e) {
+                    throw I.quiet(e);
+                }
+
+                try {
+                    Files.delete(result);
+                } catch (IOException e) {
+                    throw I.quiet(e);
+                }
+            }
+            return new ForkResult(suites, runs, fails, errors, skips, times, shows, errored, failed);
+        }
+    }
+
     /**
      * 
      */
@@ -89,6 +333,15 @@ public class Test extends Task {
         /** The threshold time (ns) to show the prolonged test. */
         private long showProlongedTime;
 
+        /** The report directory. */
+        private Path reports;
+
+        /** The fork index. */
+        private int index;
+
+        /** The flag whether this JVM executes the part of tests or not. */
+        private boolean partial;
+
         /**
          * {@inheritDoc}
          */
@@ -101,16 +354,96 @@ public class Test extends Task {
             }
 
             Set<Path> classes = I.set(Path.of(args[0]));
+            reports = Path.of(args[1]);
             showProlongedTime = Long.parseLong(args[2]) * 1000 * 1000;
+            index = Integer.parseInt(args[3]);
+            partial = Boolean.parseBoolean(args[4]);
 
-            LauncherDiscoveryRequest request = LauncherDiscoveryRequestBuilder.request()
-                    .selectors(DiscoverySelectors.selectClasspathRoots(classes))
-                    .build();
+            LauncherDiscoveryRequestBuilder builder = LauncherDiscoveryRequestBuilder.request()
+                    .selectors(DiscoverySelectors.selectClasspathRoots(classes));
+
+            if (partial) {
+                Set<String> names = new HashSet(Files.readAllLines(reports.resolve("fork-" + index + ".txt")));
+                builder.filters((ClassNameFilter) name -> FilterResult.includedIf(names.contains(name)));
+            }
+            LauncherDiscoveryRequest request = builder.build();
 
             Summary summary = new Summary();
             LauncherFactory.create().execute(request, summary);
         }
 
+        /**
+         * Build header message.
+         */
+        private static String header() {
+            return String.format("%-4s\t%-4s\t%-4s\t%-4s\t%-4s", "Run", "Fail", "Error", "Skip", "Time(sec)");
+        }
+
+        /**
+         * Build result message.
+         */
+        private static String buildResult(int tests, int fails, int errors, int ignores, long time, String name) {
+            StringBuilder builder = new StringBuilder();
+            builder.append(String
+                    .format("%-4d\t%-4d\t%-4d\t%-4d\t%.3f   \t%s", tests, fails, errors, ignores, (float) time / 1000000000, name));
+
+            if (errors != 0) {
+                builder.append("  <<<  ERROR!");
+            } else if (fails != 0) {
+                builder.append("  <<<  FAILURE!");
+            }
+            return builder.toString();
+        }
+
+        /**
+         * Compute the top level class name.
+         * 
+         * @param name A class name.
+         * @return The top level class name.
+         */
+        private static String top(String name) {
+            int index = name.indexOf('$');
+            return index == -1 ? name : name.substring(0, index);
+        }
+
+        /**
+         * Read the execution time (ms) of test classes.
+         * 
+         * @param file A record file.
+         * @return The execution time of each test class.
+         */
+        private static Map<String, Long> read(Path file) {
+            Map<String, Long> durations = new HashMap();
+            if (Files.isRegularFile(file)) {
+                try {
+                    for (String line : Files.readAllLines(file)) {
+                        int index = line.indexOf('\t');
+                        if (index != -1) {
+                            durations.put(line.substring(0, index), Long.parseLong(line.substring(index + 1).strip()));
+                        }
+                    }
+                } catch (IOException | NumberFormatException e) {
+                    // ignore the broken record
+                }
+            }
+            return durations;
+        }
+
+        /**
+         * Write the execution time (ms) of test classes.
+         * 
+         * @param file A record file.
+         * @param durations The execution time of each test class.
+         */
+        private static void write(Path file, Map<String, Long> durations) {
+            Map<String, Long> sorted = new TreeMap(durations);
+            try {
+                Files.write(file, sorted.entrySet().stream().map(e -> e.getKey() + "\t" + e.getValue()).toList());
+            } catch (IOException e) {
+                throw I.quiet(e);
+            }
+        }
+
         /**
          * 
          */
@@ -140,16 +473,16 @@ public class Test extends Task {
             /** The test container manager. */
             private final Map<String, TestSuite> containers = new ConcurrentHashMap();
 
+            /** The execution time (ms) of each test class. */
+            private final Map<String, Long> durations = new HashMap();
+
             /**
              * {@inheritDoc}
              */
             @Override
             public synchronized void testPlanExecutionStarted(TestPlan testPlan) {
-                showHeader();
-            }
-
-            private void showHeader() {
-                ui.info(String.format("%-4s\t%-4s\t%-4s\t%-4s\t%-4s", "Run", "Fail", "Error", "Skip", "Time(sec)"));
+                // the parent process shows the header of partial tests
+                if (!partial) ui.info(header());
             }
 
             /**
@@ -157,7 +490,20 @@ public class Test extends Task {
              */
             @Override
             public synchronized void testPlanExecutionFinished(TestPlan testPlan) {
-                if (shows) showHeader();
+                write(reports.resolve("duration-" + index + ".txt"), durations);
+
+                if (partial) {
+                    // the parent process merges the results of partial tests
+                    try {
+                        new ForkResult(suites, runs, fails.size(), errors.size(), skips, times, shows, buildFailure(errors), buildFailure(fails))
+                                .write(reports, index);
+                    } catch (IOException e) {
+                        throw I.quiet(e);
+                    }
+                    return;
+                }
+
+                if (shows) ui.info(header());
 
                 ui.info(buildResult(runs, fails.size(), errors.size(), skips, times, "TOTAL (" + suites + " suites)"));
                 if (fails.size() != 0 || errors.size() != 0) {
@@ -166,8 +512,8 @@ public class Test extends Task {
                     // almost a fixed content executed in a remote JVM)
                     fail.setStackTrace(new StackTraceElement[0]);
 
-                    buildFailure(fail, errors);
-                    buildFailure(fail, fails);
+                    buildFailure(errors).forEach(fail::solve);
+                    buildFailure(fails).forEach(fail::solve);
                     ui.error(fail);
                 }
             }
@@ -209,8 +555,9 @@ public class Test extends Task {
                 if (identifier.isContainer()) {
                     TestSuite container = containers.get(identifier.getUniqueId());
 
-                    if (identifier.getSource().get() instanceof ClassSource) {
+                    if (identifier.getSource().get() instanceof ClassSource source) {
                         long elapsed = System.nanoTime() - container.startTime;
+                        durations.merge(top(source.getClassName()), elapsed / 1000000, Math::max);
                         times += elapsed;
 
                         boolean show = 0 < container.failures || 0 < container.errors || 0 < container.skips || showProlongedTime <= elapsed;
@@ -259,28 +606,13 @@ public class Test extends Task {
             }
 
             /**
-             * Build result message.
-             */
-            private String buildResult(int tests, int fails, int errors, int ignores, long time, String name) {
-                StringBuilder builder = new StringBuilder();
-                builder.append(String
-                        .format("%-4d\t%-4d\t%-4d\t%-4d\t%.3f   \t%s", tests, fails, errors, ignores, (float) time / 1000000000, name));
-
-                if (errors != 0) {
-                    builder.append("  <<<  ERROR!");
-                } else if (fails != 0) {
-                    builder.append("  <<<  FAILURE!");
-                }
-                return builder.toString();
-            }
-
-            /**
-             * Build {@link Fail}.
+             * Build the solution messages of {@link Fail}.
              * 
-             * @param fail A current resolver.
              * @param list A list of test results.
+             * @return The solution messages.
              */
-            private void buildFailure(Fail fail, List<Failure> list) {
+            private List<String> buildFailure(List<Failure> list) {
+                List<String> messages = new ArrayList();
                 for (Failure e : list) {
                     String name = e.test.getUniqueIdObject().getSegments().get(1).getValue();
                     StackTraceElement element = e.error.getStackTrace()[0];
@@ -290,8 +622,9 @@ public class Test extends Task {
                     if (line != 0) message.append(" @line").append(line);
                     message.append(Platform.EOL).append(e.message().indent(4));
 
-                    fail.solve(message);
+                    messages.add(message.toString());
                 }
+                return messages;
             }
 
             /**
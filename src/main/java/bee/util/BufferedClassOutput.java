@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2024 The BEE Development Team
+ *
+ * Licensed under the MIT License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          https://opensource.org/licenses/MIT
+ */
+package bee.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardLocation;
+
+import bee.util.JavaCompiler.Changes;
+import kiss.I;
+
+/**
+ * {@link JavaFileManager} which keeps the emitted classes in memory. They are written to the output
+ * directory after the successful compilation, and only if the bytes are changed. The unchanged class
+ * file keeps its modified time, so the downstream tasks can detect the actual changes.
+ */
+class BufferedClassOutput extends ForwardingJavaFileManager<JavaFileManager> {
+
+    /** The output directory. */
+    private final Path output;
+
+    /** The emitted classes. (class file → bytes) */
+    private final Map<Path, byte[]> buffer;
+
+    /**
+     * @param manager The delegation.
+     * @param output The output directory.
+     * @param buffer The emitted classes.
+     */
+    BufferedClassOutput(JavaFileManager manager, Path output, Map<Path, byte[]> buffer) {
+        super(manager);
+        this.output = output.toAbsolutePath().normalize();
+        this.buffer = buffer;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public JavaFileObject getJavaFileForOutput(Location location, String className, Kind kind, FileObject sibling) throws IOException {
+        if (location != StandardLocation.CLASS_OUTPUT || kind != Kind.CLASS) {
+            return super.getJavaFileForOutput(location, className, kind, sibling);
+        }
+
+        Path file = output.resolve(className.replace('.', '/') + kind.extension);
+        return new SimpleJavaFileObject(file.toUri(), kind) {
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public OutputStream openOutputStream() {
+                return new ByteArrayOutputStream() {
+
+                    /**
+                     * {@inheritDoc}
+                     */
+                    @Override
+                    public void close() {
+                        buffer.put(file, toByteArray());
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Write the changed classes atomically and delete the stale files which are not emitted again.
+     * All paths are compared in the absolute and normalized form, the same as
+     * {@link CompilationIndex} records them.
+     * 
+     * @param output The output directory.
+     * @param buffer The emitted classes.
+     * @param stale The stale files.
+     * @return The actual changes.
+     */
+    static Changes commit(Path output, Map<Path, byte[]> buffer, Collection<Path> stale) {
+        Set<String> added = new TreeSet();
+        Set<String> changed = new TreeSet();
+        Set<String> removed = new TreeSet();
+        output = output.toAbsolutePath().normalize();
+
+        try {
+            for (Entry<Path, byte[]> entry : buffer.entrySet()) {
+                Path file = entry.getKey();
+                byte[] bytes = entry.getValue();
+
+                if (Files.notExists(file)) {
+                    added.add(name(output, file));
+                } else if (Files.size(file) == bytes.length && Arrays.equals(Files.readAllBytes(file), bytes)) {
+                    continue;
+                } else {
+                    changed.add(name(output, file));
+                }
+
+                Files.createDirectories(file.getParent());
+                Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+                Files.write(temp, bytes);
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+
+            for (Path path : stale) {
+                Path file = path.toAbsolutePath().normalize();
+                if (!buffer.containsKey(file) && Files.deleteIfExists(file) && file.toString().endsWith(Kind.CLASS.extension)) {
+                    removed.add(name(output, file));
+                }
+            }
+        } catch (IOException e) {
+            throw I.quiet(e);
+        }
+        return new Changes(added, changed, removed);
+    }
+
+    /**
+     * Compute the binary name of class.
+     * 
+     * @param output The output directory.
+     * @param file The class file.
+     * @return The binary name.
+     */
+    private static String name(Path output, Path file) {
+        String name = output.relativize(file).toString().replace('\\', '/');
+        return name.substring(0, name.length() - Kind.CLASS.extension.length()).replace('/', '.');
+    }
+}
\ No newline at end of file
@@ -0,0 +1,952 @@
+/*
+ * Copyright (C) 2024 The BEE Development Team
+ *
+ * Licensed under the MIT License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          https://opensource.org/licenses/MIT
+ */
+package bee.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.RecordComponentVisitor;
+
+import kiss.I;
+
+/**
+ * Persistent dependency graph for the incremental compilation. It maps each source file to the
+ * emitted classes (including inner and anonymous classes), and each class to the referenced classes
+ * which are collected from the constant pool.
+ * <p>
+ * Each class also has the fingerprint of its ABI (all non-private signatures, constants and
+ * annotations). The downstream source set (e.g. test) records the ABI of the upstream classes on its
+ * classpath, so the change of method body in upstream never recompiles the downstream.
+ * <p>
+ * The files generated by the annotation processors are mapped to their originating sources. The
+ * output of isolating processor is regenerated only when its origin is recompiled, and all outputs of
+ * aggregating processors are regenerated when any source is recompiled.
+ */
+class CompilationIndex {
+
+    /** The format identifier. */
+    private static final int MAGIC = 0xBEEC0DE3;
+
+    /** The type pattern in descriptor and signature. */
+    private static final Pattern TYPE = Pattern.compile("L([\\w$/]+)[;<]");
+
+    /** The index file. */
+    private final Path file;
+
+    /** The output directory. */
+    private final Path output;
+
+    /** The compiler configuration. */
+    private final int configuration;
+
+    /** The indexed sources. (relative source path → entry) */
+    private final Map<String, Unit> units = new HashMap();
+
+    /** The files generated by the annotation processors. (relative output path → entry) */
+    private final Map<String, Output> outputs = new HashMap();
+
+    /** The ABI of upstream classes which are compiled against. (internal name → ABI) */
+    private Map<String, Abi> upstream = new HashMap();
+
+    /** The validity of the loaded index. */
+    private boolean valid;
+
+    /** The class files which will be emitted again or whose source is removed. */
+    private final Set<Path> stale = new HashSet();
+
+    /**
+     * Load the index of the specified output directory.
+     * 
+     * @param output The output directory.
+     * @param configuration The fingerprint of compiler configuration. If it is changed, all sources
+     *            must be recompiled.
+     */
+    CompilationIndex(Path output, int configuration) {
+        this(output, configuration, true);
+    }
+
+    /**
+     * Load the index of the specified output directory.
+     * 
+     * @param output The output directory.
+     * @param configuration The fingerprint of compiler configuration.
+     * @param strict Discard the index for the other configuration.
+     */
+    private CompilationIndex(Path output, int configuration, boolean strict) {
+        this.output = output.toAbsolutePath().normalize();
+        this.file = this.output.resolveSibling(this.output.getFileName() + ".index");
+        this.configuration = configuration;
+
+        if (Files.exists(file)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                if (in.readInt() == MAGIC && (in.readInt() == configuration || !strict)) {
+                    for (int i = in.readInt(); 0 < i; i--) {
+                        Unit unit = new Unit(in.readUTF(), in.readLong(), in.readLong());
+                        for (int j = in.readInt(); 0 < j; j--) {
+                            unit.classes.put(in.readUTF(), new Abi(in.readLong(), in.readLong()));
+                        }
+                        for (int j = in.readInt(); 0 < j; j--) {
+                            unit.references.add(in.readUTF());
+                        }
+                        units.put(unit.source, unit);
+                    }
+                    for (int i = in.readInt(); 0 < i; i--) {
+                        upstream.put(in.readUTF(), new Abi(in.readLong(), in.readLong()));
+                    }
+                    for (int i = in.readInt(); 0 < i; i--) {
+                        String path = in.readUTF();
+                        boolean aggregating = in.readBoolean();
+                        Set<String> origins = new TreeSet();
+                        for (int j = in.readInt(); 0 < j; j--) {
+                            origins.add(in.readUTF());
+                        }
+                        outputs.put(path, new Output(origins, aggregating));
+                    }
+                    valid = true;
+                }
+            } catch (IOException e) {
+                units.clear();
+                upstream.clear();
+                outputs.clear();
+            }
+        }
+    }
+
+    /**
+     * Select the sources to compile and collect all stale classes which will be emitted again or
+     * whose source is removed. The stale classes are not deleted here, so the compiler can compare
+     * the emitted class with the previous one.
+     * 
+     * @param sources All current sources. (relative source path → file)
+     * @param classpaths All classpaths. The class directories are treated as the upstream.
+     * @param all Force to compile all sources.
+     * @param processing The incremental type of annotation processing.
+     * @param shallow Select the changed sources only, their dependents are selected by
+     *            {@link #expand(Map, Set)} after compiling.
+     * @return The relative source paths to compile.
+     */
+    Set<String> select(Map<String, Path> sources, List<Path> classpaths, boolean all, Processing processing, boolean shallow) {
+        // compare the ABI of upstream classes
+        Map<String, Abi> previous = upstream;
+        upstream = snapshot(classpaths);
+
+        Set<String> external = new HashSet();
+        boolean constant = false;
+        for (Entry<String, Abi> entry : previous.entrySet()) {
+            Abi current = upstream.get(entry.getKey());
+            if (!entry.getValue().equals(current)) {
+                external.add(entry.getKey());
+                constant |= current == null ? entry.getValue().constants != 0 : entry.getValue().constants != current.constants;
+            }
+        }
+
+        // compare sources
+        Set<String> changed = new LinkedHashSet();
+        Set<String> removed = new HashSet(units.keySet());
+        removed.removeAll(sources.keySet());
+        removed.removeAll(outputs.keySet());
+
+        for (String source : removed) {
+            constant |= units.get(source).hasConstant();
+        }
+
+        for (Entry<String, Path> entry : sources.entrySet()) {
+            Unit unit = units.get(entry.getKey());
+            if (unit == null) {
+                changed.add(entry.getKey());
+            } else if (!unit.isLatest(entry.getValue())) {
+                changed.add(entry.getKey());
+
+                // The constant is inlined into the referrer without any reference, so the referrer
+                // can't be detected.
+                constant |= unit.hasConstant();
+            }
+        }
+
+        if (!valid) {
+            // The index for the other configuration can't tell the owner of classes, so all existing
+            // classes are stale and the orphaned ones are deleted after the full compilation.
+            if (Files.isDirectory(output)) {
+                try (Stream<Path> files = Files.walk(output)) {
+                    files.filter(path -> path.toString().endsWith(".class") && Files.isRegularFile(path)).forEach(stale::add);
+                } catch (IOException e) {
+                    throw I.quiet(e);
+                }
+            }
+            units.clear();
+            outputs.clear();
+            return new LinkedHashSet(sources.keySet());
+        }
+
+        // The generated file without any originating source can't be updated incrementally.
+        boolean whole = processing == Processing.Full;
+        if (processing != Processing.None) {
+            for (Output generated : outputs.values()) {
+                whole |= generated.origins.isEmpty();
+            }
+        }
+
+        boolean modified = !changed.isEmpty() || !removed.isEmpty() || !external.isEmpty();
+        if (all || constant || (whole && modified)) {
+            for (Unit unit : units.values()) {
+                unit.stale();
+            }
+            for (String path : outputs.keySet()) {
+                stale.add(output.resolve(path));
+            }
+            units.clear();
+            outputs.clear();
+            return new LinkedHashSet(sources.keySet());
+        }
+
+        // collect all dependents transitively
+        Map<String, Set<String>> referrers = new HashMap();
+        for (Unit unit : units.values()) {
+            for (String reference : unit.references) {
+                referrers.computeIfAbsent(reference, key -> new HashSet()).add(unit.source);
+            }
+        }
+
+        Set<String> affected = new LinkedHashSet(changed);
+        Deque<String> names = new ArrayDeque(external);
+        for (String source : changed) {
+            if (!shallow && units.containsKey(source)) names.addAll(units.get(source).classes.keySet());
+        }
+        for (String source : removed) {
+            names.addAll(units.get(source).classes.keySet());
+        }
+
+        // The classes which are changed or removed outside of the compilation affect their direct
+        // dependents only.
+        if (shallow) {
+            while (!names.isEmpty()) {
+                for (String referrer : referrers.getOrDefault(names.poll(), Set.of())) {
+                    if (sources.containsKey(referrer)) affected.add(referrer);
+                }
+            }
+        }
+
+        Set<String> regenerated = new HashSet();
+        do {
+            while (!names.isEmpty()) {
+                for (String referrer : referrers.getOrDefault(names.poll(), Set.of())) {
+                    if (sources.containsKey(referrer)) {
+                        affect(referrer, sources, affected, names);
+                    } else if (outputs.containsKey(referrer)) {
+                        // the generated source is updated by processing its origins again
+                        for (String origin : outputs.get(referrer).origins) {
+                            affect(origin, sources, affected, names);
+                        }
+                    }
+                }
+            }
+
+            // The outputs of the affected or removed origins are regenerated, and the dependents of
+            // the generated classes are also affected.
+            for (Entry<String, Output> entry : outputs.entrySet()) {
+                Output generated = entry.getValue();
+                if (!regenerated.contains(entry.getKey()) && (generated.aggregating ? !affected.isEmpty() || !removed.isEmpty()
+                        : generated.origins.stream().anyMatch(origin -> affected.contains(origin) || removed.contains(origin)))) {
+                    regenerated.add(entry.getKey());
+
+                    Unit unit = units.get(entry.getKey());
+                    if (unit != null) names.addAll(unit.classes.keySet());
+                    for (String origin : generated.origins) {
+                        affect(origin, sources, affected, names);
+                    }
+                }
+            }
+        } while (!names.isEmpty());
+
+        for (String path : regenerated) {
+            outputs.remove(path);
+            stale.add(output.resolve(path));
+
+            Unit unit = units.remove(path);
+            if (unit != null) unit.stale();
+        }
+        for (String source : removed) {
+            units.remove(source).stale();
+        }
+        for (String source : affected) {
+            Unit unit = units.remove(source);
+            if (unit != null) unit.stale();
+        }
+        return affected;
+    }
+
+    /**
+     * Select the sources which refer the specified classes directly and collect their stale
+     * classes. This is the next round of the shallow selection.
+     * 
+     * @param sources All current sources. (relative source path → file)
+     * @param names The structurally changed classes. (internal name)
+     * @return The relative source paths to compile.
+     */
+    Set<String> expand(Map<String, Path> sources, Set<String> names) {
+        Set<String> affected = new LinkedHashSet();
+        for (Unit unit : units.values()) {
+            if (sources.containsKey(unit.source) && !Collections.disjoint(unit.references, names)) {
+                affected.add(unit.source);
+            }
+        }
+
+        for (String source : affected) {
+            units.remove(source).stale();
+        }
+        return affected;
+    }
+
+    /**
+     * Mark the source as affected.
+     * 
+     * @param source The relative source path.
+     * @param sources All current sources.
+     * @param affected The affected sources.
+     * @param names The classes whose dependents are not collected yet.
+     */
+    private void affect(String source, Map<String, Path> sources, Set<String> affected, Deque<String> names) {
+        if (sources.containsKey(source) && affected.add(source)) {
+            Unit unit = units.get(source);
+            if (unit != null) names.addAll(unit.classes.keySet());
+        }
+    }
+
+    /**
+     * Get the stale files which are selected by {@link #select(Map, List, boolean, Processing)}.
+     * 
+     * @return The stale files.
+     */
+    Set<Path> stale() {
+        return stale;
+    }
+
+    /**
+     * Register the compiled sources and store the index.
+     * 
+     * @param sources All current sources. (relative source path → file)
+     * @param compiled The compiled sources.
+     * @param generated The files generated by the annotation processors. (relative output path →
+     *            relative source paths)
+     * @param aggregating The generated files depend on all processed sources.
+     */
+    void update(Map<String, Path> sources, Set<String> compiled, Map<String, Set<String>> generated, boolean aggregating) {
+        // the generated sources are compiled as the part of their origins
+        if (!generated.isEmpty()) {
+            sources = new HashMap(sources);
+            compiled = new HashSet(compiled);
+
+            for (Entry<String, Set<String>> entry : generated.entrySet()) {
+                outputs.put(entry.getKey(), new Output(new TreeSet(entry.getValue()), aggregating));
+
+                if (entry.getKey().endsWith(".java")) {
+                    sources.put(entry.getKey(), output.resolve(entry.getKey()));
+                    compiled.add(entry.getKey());
+                }
+            }
+
+            // the origin which is generated in the previous round is replaced by its origins
+            for (Output entry : outputs.values()) {
+                Deque<String> origins = new ArrayDeque(entry.origins);
+                Set<String> visited = new HashSet();
+                entry.origins.clear();
+
+                while (!origins.isEmpty()) {
+                    String origin = origins.poll();
+                    Output parent = outputs.get(origin);
+                    if (parent == null) {
+                        entry.origins.add(origin);
+                    } else if (visited.add(origin)) {
+                        origins.addAll(parent.origins);
+                    }
+                }
+            }
+        }
+
+        Set<Path> claimed = new HashSet();
+        for (Unit unit : units.values()) {
+            for (String name : unit.classes.keySet()) {
+                claimed.add(output.resolve(name + ".class"));
+            }
+        }
+
+        for (String source : compiled) {
+            Path path = sources.get(source);
+            if (path != null) {
+                try {
+                    units.put(source, new Unit(source, Files.getLastModifiedTime(path).toMillis(), Files.size(path)));
+                } catch (IOException e) {
+                    // the source will be compiled again at next time
+                }
+            }
+        }
+
+        try (Stream<Path> files = Files.walk(output)) {
+            for (Path path : files.filter(p -> p.toString().endsWith(".class") && !claimed.contains(p)).toList()) {
+                ClassReader reader = new ClassReader(Files.readAllBytes(path));
+                Unit unit = units.get(owner(reader));
+
+                if (unit != null && compiled.contains(unit.source)) {
+                    unit.register(reader);
+                }
+            }
+        } catch (IOException e) {
+            throw I.quiet(e);
+        }
+
+        store();
+    }
+
+    /**
+     * Write the index file.
+     */
+    private void store() {
+        try {
+            Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(configuration);
+                out.writeInt(units.size());
+                for (Unit unit : units.values()) {
+                    out.writeUTF(unit.source);
+                    out.writeLong(unit.modified);
+                    out.writeLong(unit.size);
+                    out.writeInt(unit.classes.size());
+                    for (Entry<String, Abi> entry : unit.classes.entrySet()) {
+                        out.writeUTF(entry.getKey());
+                        out.writeLong(entry.getValue().members);
+                        out.writeLong(entry.getValue().constants);
+                    }
+                    out.writeInt(unit.references.size());
+                    for (String name : unit.references) {
+                        out.writeUTF(name);
+                    }
+                }
+                out.writeInt(upstream.size());
+                for (Entry<String, Abi> entry : upstream.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(entry.getValue().members);
+                    out.writeLong(entry.getValue().constants);
+                }
+                out.writeInt(outputs.size());
+                for (Entry<String, Output> entry : outputs.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeBoolean(entry.getValue().aggregating);
+                    out.writeInt(entry.getValue().origins.size());
+                    for (String origin : entry.getValue().origins) {
+                        out.writeUTF(origin);
+                    }
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw I.quiet(e);
+        }
+    }
+
+    /**
+     * Compute the ABI of all classes in the class directories on the specified classpath.
+     * 
+     * @param classpaths All classpaths.
+     * @return The ABI of classes. (internal name → ABI)
+     */
+    private Map<String, Abi> snapshot(List<Path> classpaths) {
+        Map<String, Abi> snapshot = new HashMap();
+        for (Path classpath : classpaths) {
+            Path directory = classpath.toAbsolutePath().normalize();
+            if (Files.isDirectory(directory) && !directory.equals(output)) {
+                for (Entry<String, Abi> entry : abi(directory).entrySet()) {
+                    snapshot.putIfAbsent(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Compute the ABI of all classes in the specified directory. The index of the directory is used
+     * if it is available.
+     * 
+     * @param directory A class directory.
+     * @return The ABI of classes. (internal name → ABI)
+     */
+    static Map<String, Abi> abi(Path directory) {
+        Map<String, Abi> abi = new HashMap();
+        CompilationIndex index = new CompilationIndex(directory, 0, false);
+
+        if (index.valid) {
+            for (Unit unit : index.units.values()) {
+                abi.putAll(unit.classes);
+            }
+        } else {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path path : files.filter(p -> p.toString().endsWith(".class")).toList()) {
+                    ClassReader reader = new ClassReader(Files.readAllBytes(path));
+                    abi.put(reader.getClassName(), Abi.of(reader));
+                }
+            } catch (IOException e) {
+                throw I.quiet(e);
+            }
+        }
+        return abi;
+    }
+
+    /**
+     * Compute the relative source path of the specified class.
+     * 
+     * @param reader A class to inspect.
+     * @return The relative source path.
+     */
+    private static String owner(ClassReader reader) {
+        String name = reader.getClassName();
+        int index = name.lastIndexOf('/');
+        String packagePath = index == -1 ? "" : name.substring(0, index + 1);
+
+        String[] source = new String[1];
+        reader.accept(new ClassVisitor(Opcodes.ASM9) {
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public void visitSource(String file, String debug) {
+                source[0] = file;
+            }
+        }, ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES);
+
+        if (source[0] == null) {
+            // guess from the top level class name
+            String simple = name.substring(index + 1);
+            int inner = simple.indexOf('$');
+            source[0] = (inner == -1 ? simple : simple.substring(0, inner)) + ".java";
+        }
+        return packagePath + source[0];
+    }
+
+    /**
+     * The compilation unit.
+     */
+    private class Unit {
+
+        /** The relative source path. */
+        private final String source;
+
+        /** The last modified time of source. */
+        private final long modified;
+
+        /** The size of source. */
+        private final long size;
+
+        /** The emitted classes. (internal name → ABI) */
+        private final Map<String, Abi> classes = new LinkedHashMap();
+
+        /** The referenced classes. (internal name) */
+        private final Set<String> references = new HashSet();
+
+        /**
+         * @param source
+         * @param modified
+         * @param size
+         */
+        private Unit(String source, long modified, long size) {
+            this.source = source;
+            this.modified = modified;
+            this.size = size;
+        }
+
+        /**
+         * Check whether the source is not modified and all emitted classes are present.
+         * 
+         * @param path The current source file.
+         * @return Result.
+         */
+        private boolean isLatest(Path path) {
+            try {
+                if (Files.getLastModifiedTime(path).toMillis() != modified || Files.size(path) != size) {
+                    return false;
+                }
+
+                for (String name : classes.keySet()) {
+                    if (Files.notExists(output.resolve(name + ".class"))) {
+                        return false;
+                    }
+                }
+                return true;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Check whether this unit declares any constant field or not.
+         * 
+         * @return Result.
+         */
+        private boolean hasConstant() {
+            for (Abi abi : classes.values()) {
+                if (abi.constants != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Register the emitted class.
+         * 
+         * @param reader
+         */
+        private void register(ClassReader reader) {
+            classes.put(reader.getClassName(), Abi.of(reader));
+
+            // scan constant pool
+            char[] buffer = new char[reader.getMaxStringLength()];
+            for (int i = 1; i < reader.getItemCount(); i++) {
+                int offset = reader.getItem(i);
+                if (offset != 0) {
+                    switch (reader.readByte(offset - 1)) {
+                    case 7: // CONSTANT_Class
+                        String type = reader.readUTF8(offset, buffer);
+                        if (type.startsWith("[")) {
+                            scan(type);
+                        } else {
+                            reference(type);
+                        }
+                        break;
+
+                    case 1: // CONSTANT_Utf8 (descriptor and signature)
+                        scan(utf8(reader, offset));
+                        break;
+                    }
+                }
+            }
+            references.removeAll(classes.keySet());
+        }
+
+        /**
+         * Collect all types in the descriptor or signature.
+         * 
+         * @param descriptor
+         */
+        private void scan(String descriptor) {
+            if (descriptor.indexOf('L') != -1) {
+                Matcher matcher = TYPE.matcher(descriptor);
+                while (matcher.find()) {
+                    reference(matcher.group(1));
+                }
+            }
+        }
+
+        /**
+         * Register the referenced class.
+         * 
+         * @param name
+         */
+        private void reference(String name) {
+            if (!name.startsWith("java/") && !name.startsWith("javax/") && !name.startsWith("jdk/") && !name.startsWith("sun/")) {
+                references.add(name);
+            }
+        }
+
+        /**
+         * Mark all emitted classes as stale.
+         */
+        private void stale() {
+            for (String name : classes.keySet()) {
+                stale.add(output.resolve(name + ".class"));
+            }
+        }
+    }
+
+    /**
+     * The file generated by the annotation processor.
+     * 
+     * @param origins The originating sources. (relative source path)
+     * @param aggregating The file depends on all processed sources.
+     */
+    private record Output(Set<String> origins, boolean aggregating) {
+    }
+
+    /**
+     * The incremental type of annotation processing.
+     */
+    enum Processing {
+        /** No annotation processor. */
+        None,
+
+        /** All processors generate each file from the single originating source. */
+        Isolating,
+
+        /** Some processors generate the file from the multiple sources. */
+        Aggregating,
+
+        /** Some processors are unknown, any change requires to compile all sources. */
+        Full;
+    }
+
+    /**
+     * Read the raw CONSTANT_Utf8 entry.
+     * 
+     * @param reader
+     * @param offset
+     * @return
+     */
+    private static String utf8(ClassReader reader, int offset) {
+        int length = reader.readUnsignedShort(offset);
+        byte[] bytes = new byte[length + 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) reader.readByte(offset + i);
+        }
+
+        try {
+            return new DataInputStream(new ByteArrayInputStream(bytes)).readUTF();
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    /**
+     * The fingerprint of the class ABI which is visible from the other classes. The private members
+     * and method bodies are excluded. The package-private members are included because the test
+     * classes are usually placed in the same package.
+     * 
+     * @param members The fingerprint of class declaration, non-private members and annotations.
+     * @param constants The fingerprint of constant values, zero means no constant.
+     */
+    record Abi(long members, long constants) {
+
+        /**
+         * Compute the ABI of the specified class.
+         * 
+         * @param reader A class to inspect.
+         * @return The computed ABI.
+         */
+        static Abi of(ClassReader reader) {
+            List<String> members = new ArrayList();
+            List<String> constants = new ArrayList();
+
+            reader.accept(new ClassVisitor(Opcodes.ASM9) {
+
+                /**
+                 * {@inheritDoc}
+                 */
+                @Override
+                public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+                    members.add("class " + access + " " + name + " " + signature + " " + superName + " " + Arrays.toString(interfaces));
+                }
+
+                /**
+                 * {@inheritDoc}
+                 */
+                @Override
+                public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+                    return annotation(members, "@" + descriptor);
+                }
+
+                /**
+                 * {@inheritDoc}
+                 */
+                @Override
+                public void visitPermittedSubclass(String permittedSubclass) {
+                    members.add("permits " + permittedSubclass);
+                }
+
+                /**
+                 * {@inheritDoc}
+                 */
+                @Override
+                public RecordComponentVisitor visitRecordComponent(String name, String descriptor, String signature) {
+                    members.add("component " + name + " " + descriptor + " " + signature);
+                    return null;
+                }
+
+                /**
+                 * {@inheritDoc}
+                 */
+                @Override
+                public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+                    if ((access & (Opcodes.ACC_PRIVATE | Opcodes.ACC_SYNTHETIC)) != 0) {
+                        return null;
+                    }
+
+                    String id = "field " + access + " " + name + " " + descriptor + " " + signature;
+                    members.add(id);
+                    if (value != null && (access & Opcodes.ACC_STATIC) != 0 && (access & Opcodes.ACC_FINAL) != 0) {
+                        constants.add(name + "=" + value);
+                    }
+
+                    return new FieldVisitor(Opcodes.ASM9) {
+
+                        /**
+                         * {@inheritDoc}
+                         */
+                        @Override
+                        public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+                            return annotation(members, id + " @" + descriptor);
+                        }
+                    };
+                }
+
+                /**
+                 * {@inheritDoc}
+                 */
+                @Override
+                public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                    if ((access & (Opcodes.ACC_PRIVATE | Opcodes.ACC_SYNTHETIC)) != 0 || name.equals("<clinit>")) {
+                        return null;
+                    }
+
+                    String id = "method " + access + " " + name + " " + descriptor + " " + signature + " " + Arrays.toString(exceptions);
+                    members.add(id);
+
+                    return new MethodVisitor(Opcodes.ASM9) {
+
+                        /**
+                         * {@inheritDoc}
+                         */
+                        @Override
+                        public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+                            return annotation(members, id + " @" + descriptor);
+                        }
+
+                        /**
+                         * {@inheritDoc}
+                         */
+                        @Override
+                        public AnnotationVisitor visitParameterAnnotation(int parameter, String descriptor, boolean visible) {
+                            return annotation(members, id + " @" + parameter + descriptor);
+                        }
+
+                        /**
+                         * {@inheritDoc}
+                         */
+                        @Override
+                        public AnnotationVisitor visitAnnotationDefault() {
+                            return annotation(members, id + " default");
+                        }
+                    };
+                }
+            }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+
+            return new Abi(hash(members), constants.isEmpty() ? 0 : hash(constants));
+        }
+
+        /**
+         * Build the annotation visitor which records all values.
+         * 
+         * @param members The record.
+         * @param prefix The identifier of the annotated element.
+         * @return The visitor.
+         */
+        private static AnnotationVisitor annotation(List<String> members, String prefix) {
+            return new AnnotationVisitor(Opcodes.ASM9) {
+
+                /** The element index in array. */
+                private int index;
+
+                /**
+                 * {@inheritDoc}
+                 */
+                @Override
+                public void visit(String name, Object value) {
+                    members.add(prefix + " " + key(name) + "=" + Arrays.deepToString(new Object[] {value}));
+                }
+
+                /**
+                 * {@inheritDoc}
+                 */
+                @Override
+                public void visitEnum(String name, String descriptor, String value) {
+                    members.add(prefix + " " + key(name) + "=" + descriptor + "." + value);
+                }
+
+                /**
+                 * {@inheritDoc}
+                 */
+                @Override
+                public AnnotationVisitor visitAnnotation(String name, String descriptor) {
+                    return annotation(members, prefix + " " + key(name) + "=@" + descriptor);
+                }
+
+                /**
+                 * {@inheritDoc}
+                 */
+                @Override
+                public AnnotationVisitor visitArray(String name) {
+                    return annotation(members, prefix + " " + key(name) + "[]");
+                }
+
+                /**
+                 * Compute the element key. The element in array has no name.
+                 * 
+                 * @param name
+                 * @return
+                 */
+                private String key(String name) {
+                    return name == null ? "#" + index++ : name;
+                }
+            };
+        }
+
+        /**
+         * Compute the order-insensitive hash.
+         * 
+         * @param values
+         * @return
+         */
+        private static long hash(List<String> values) {
+            try {
+                Collections.sort(values);
+
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                for (String value : values) {
+                    digest.update(value.getBytes(StandardCharsets.UTF_8));
+                    digest.update((byte) '\n');
+                }
+                return ByteBuffer.wrap(digest.digest()).getLong();
+            } catch (Exception e) {
+                throw I.quiet(e);
+            }
+        }
+    }
+}
\ No newline at end of file
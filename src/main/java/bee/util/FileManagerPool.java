@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2024 The BEE Development Team
+ *
+ * Licensed under the MIT License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          https://opensource.org/licenses/MIT
+ */
+package bee.util;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.tools.JavaFileManager.Location;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+/**
+ * The pool of javac file managers. The standard file manager keeps the opened jar files and their
+ * indexes, so reusing it skips scanning the same classpath again in the next compilation. A
+ * manager is discarded when any jar which it has opened is modified. The managers are pooled per
+ * release version because javac configures the platform locations (system modules or the platform
+ * classpath from ct.sym) by the --release option and they can't be restored safely.
+ */
+class FileManagerPool {
+
+    /** The maximum number of idle managers. */
+    private static final int MAX_IDLE = Runtime.getRuntime().availableProcessors();
+
+    /** The locations which must be reset before reusing. */
+    private static final Location[] LOCATIONS = {StandardLocation.CLASS_PATH, StandardLocation.SOURCE_PATH, StandardLocation.CLASS_OUTPUT,
+            StandardLocation.SOURCE_OUTPUT, StandardLocation.NATIVE_HEADER_OUTPUT, StandardLocation.ANNOTATION_PROCESSOR_PATH};
+
+    /** The idle managers. */
+    private static final Deque<Lease> idles = new ArrayDeque();
+
+    /**
+     * Borrow the file manager exclusively.
+     * 
+     * @param encoding The source encoding.
+     * @param release The value of --release option, null means the current platform.
+     * @param classpaths The classpath of the compilation.
+     * @return The borrowed manager, close it to return to the pool.
+     */
+    static Lease acquire(Charset encoding, String release, Collection<Path> classpaths) {
+        Map<Path, Long> stamps = new HashMap();
+        for (Path path : classpaths) {
+            if (Files.isRegularFile(path)) {
+                try {
+                    stamps.put(path.toAbsolutePath(), Files.size(path) * 31 + Files.getLastModifiedTime(path).toMillis());
+                } catch (IOException e) {
+                    // ignore the unreadable jar
+                }
+            }
+        }
+
+        synchronized (idles) {
+            Iterator<Lease> iterator = idles.iterator();
+            while (iterator.hasNext()) {
+                Lease lease = iterator.next();
+                if (lease.stale(stamps)) {
+                    iterator.remove();
+                    lease.dispose();
+                } else if (lease.encoding.equals(encoding) && Objects.equals(lease.release, release)) {
+                    iterator.remove();
+                    lease.stamps.putAll(stamps);
+                    return lease;
+                }
+            }
+        }
+
+        Lease lease = new Lease(ToolProvider.getSystemJavaCompiler().getStandardFileManager(null, null, encoding), encoding, release);
+        lease.stamps.putAll(stamps);
+        return lease;
+    }
+
+    /**
+     * The borrowed file manager.
+     */
+    static class Lease implements AutoCloseable {
+
+        /** The pooled manager. */
+        final StandardJavaFileManager manager;
+
+        /** The source encoding. */
+        private final Charset encoding;
+
+        /** The release version. */
+        private final String release;
+
+        /** The modification stamps of the opened jars. */
+        private final Map<Path, Long> stamps = new HashMap();
+
+        /**
+         * @param manager
+         * @param encoding
+         * @param release
+         */
+        private Lease(StandardJavaFileManager manager, Charset encoding, String release) {
+            this.manager = manager;
+            this.encoding = encoding;
+            this.release = release;
+        }
+
+        /**
+         * Check whether any opened jar is modified.
+         * 
+         * @param current The current stamps.
+         * @return Result.
+         */
+        private boolean stale(Map<Path, Long> current) {
+            for (Map.Entry<Path, Long> entry : current.entrySet()) {
+                Long stamp = stamps.get(entry.getKey());
+                if (stamp != null && !stamp.equals(entry.getValue())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Close the manager actually.
+         */
+        private void dispose() {
+            try {
+                manager.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+
+        /**
+         * Return the manager to the pool.
+         */
+        @Override
+        public void close() {
+            try {
+                for (Location location : LOCATIONS) {
+                    manager.setLocation(location, null);
+                }
+                manager.flush();
+            } catch (Throwable e) {
+                dispose();
+                return;
+            }
+
+            synchronized (idles) {
+                if (idles.size() < MAX_IDLE) {
+                    idles.addFirst(this);
+                    return;
+                }
+            }
+            dispose();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2024 The BEE Development Team
+ *
+ * Licensed under the MIT License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          https://opensource.org/licenses/MIT
+ */
+package bee.util;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.tools.JavaFileObject;
+import javax.tools.ToolProvider;
+
+import com.sun.source.tree.BlockTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.ExpressionStatementTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.StatementTree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.SourcePositions;
+import com.sun.source.util.TreePathScanner;
+import com.sun.source.util.Trees;
+
+import kiss.I;
+
+/**
+ * Generates the header sources which keep all declarations but replace every method body with
+ * {@code throw null}. The compiled header classes have the same ABI as the full classes, so the
+ * downstream source set can be compiled against them before the full compilation completes.
+ */
+class HeaderGenerator {
+
+    /** The replacement of method body. */
+    private static final String STUB = "{ throw null; }";
+
+    /**
+     * Generate the header sources.
+     * 
+     * @param files The source files to stub.
+     * @param encoding The source encoding.
+     * @return The header source for each file.
+     */
+    static Map<Path, String> generate(List<Path> files, Charset encoding) {
+        Map<Path, String> headers = new HashMap();
+        if (files.isEmpty()) {
+            return headers;
+        }
+
+        javax.tools.JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (FileManagerPool.Lease lease = FileManagerPool.acquire(encoding, null, List.of())) {
+            Map<JavaFileObject, Path> objects = new HashMap();
+            for (Path file : files) {
+                for (JavaFileObject object : lease.manager.getJavaFileObjectsFromPaths(List.of(file))) {
+                    objects.put(object, file);
+                }
+            }
+
+            JavacTask task = (JavacTask) compiler.getTask(null, lease.manager, diagnostic -> {
+            }, List.of("-proc:none"), null, objects.keySet());
+            SourcePositions positions = Trees.instance(task).getSourcePositions();
+
+            for (CompilationUnitTree unit : task.parse()) {
+                String code = unit.getSourceFile().getCharContent(true).toString();
+                List<long[]> replaces = new ArrayList();
+
+                new TreePathScanner<Void, Void>() {
+
+                    /**
+                     * {@inheritDoc}
+                     */
+                    @Override
+                    public Void visitMethod(MethodTree method, Void p) {
+                        BlockTree body = method.getBody();
+                        if (body == null) {
+                            return null;
+                        }
+
+                        long start = positions.getStartPosition(unit, body);
+                        long end = positions.getEndPosition(unit, body);
+                        if (start < 0 || end < 0) {
+                            return null;
+                        }
+
+                        // The explicit constructor invocation must be kept to select the same
+                        // super constructor.
+                        List<? extends StatementTree> statements = body.getStatements();
+                        if (!statements.isEmpty() && invokeConstructor(statements.get(0))) {
+                            start = positions.getEndPosition(unit, statements.get(0));
+                            replaces.add(new long[] {start, end, 1});
+                        } else {
+                            replaces.add(new long[] {start, end, 0});
+                        }
+
+                        // The nested classes in method body are not part of ABI.
+                        return null;
+                    }
+                }.scan(unit, null);
+
+                replaces.sort(Comparator.comparingLong(replace -> replace[0]));
+
+                StringBuilder builder = new StringBuilder(code);
+                for (int i = replaces.size() - 1; 0 <= i; i--) {
+                    long[] replace = replaces.get(i);
+                    builder.replace((int) replace[0], (int) replace[1], replace[2] == 1 ? " throw null; }" : STUB);
+                }
+                headers.put(objects.get(unit.getSourceFile()), builder.toString());
+            }
+        } catch (IOException e) {
+            throw I.quiet(e);
+        }
+        return headers;
+    }
+
+    /**
+     * Check whether the statement is the explicit constructor invocation.
+     * 
+     * @param statement A statement to check.
+     * @return Result.
+     */
+    private static boolean invokeConstructor(StatementTree statement) {
+        if (statement instanceof ExpressionStatementTree expression && expression.getExpression() instanceof MethodInvocationTree invocation) {
+            String value;
+            if (invocation.getMethodSelect() instanceof IdentifierTree name) {
+                value = name.getName().toString();
+            } else if (invocation.getMethodSelect() instanceof MemberSelectTree member) {
+                // the qualified invocation like "outer.super()"
+                value = member.getIdentifier().toString();
+            } else {
+                return false;
+            }
+            return value.equals("this") || value.equals("super");
+        }
+        return false;
+    }
+}
\ No newline at end of file
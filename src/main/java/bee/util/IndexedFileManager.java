@@ -0,0 +1,693 @@
+/*
+ * Copyright (C) 2024 The BEE Development Team
+ *
+ * Licensed under the MIT License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          https://opensource.org/licenses/MIT
+ */
+package bee.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+
+import kiss.I;
+
+/**
+ * {@link javax.tools.JavaFileManager} which answers the classpath lookups from the package index.
+ * The standard file manager scans every classpath entry for each package lookup, this manager finds
+ * the jars which contain the package at once. The index of each jar is built from its central
+ * directory only once and is persisted in the cache directory. The index is shared by all managers,
+ * but the zip handle is held only while any manager which uses the jar is open.
+ */
+class IndexedFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+    /** The magic number of index file. */
+    private static final int MAGIC = 0xBEE1DE00;
+
+    /** The prefix of versioned entries in multi-release jar. */
+    private static final String VERSIONS = "META-INF/versions/";
+
+    /** The loaded archives by path, the archive is replaced when the size or modified time changes. */
+    private static final Map<Path, Archive> archives = new ConcurrentHashMap();
+
+    /** The index directory. */
+    private final Path cache;
+
+    /** The release version for multi-release jars. */
+    private final int release;
+
+    /** The source encoding. */
+    private final Charset encoding;
+
+    /** The classpath entries in order, the element is {@link Path} of directory or {@link Archive}. */
+    private final List<Object> classpath = new ArrayList();
+
+    /** The files in directory which are invisible from compiler. */
+    private final Set<Path> hidden = new HashSet();
+
+    /**
+     * @param manager The delegation.
+     * @param cache The index directory.
+     * @param release The release version.
+     * @param encoding The source encoding.
+     * @param hidden The files in directory which are invisible from compiler. (e.g. stale classes)
+     */
+    IndexedFileManager(StandardJavaFileManager manager, Path cache, int release, Charset encoding, Set<Path> hidden) {
+        super(manager);
+        this.cache = cache;
+        this.release = release;
+        this.encoding = encoding;
+
+        for (Path file : hidden) {
+            this.hidden.add(file.toAbsolutePath().normalize());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean handleOption(String current, Iterator<String> remaining) {
+        if (current.equals("-cp") || current.equals("-classpath") || current.equals("--class-path")) {
+            release();
+            for (String path : remaining.next().split(File.pathSeparator)) {
+                if (!path.isEmpty()) {
+                    Path file = Path.of(path).toAbsolutePath();
+                    classpath.add(Files.isRegularFile(file) ? archive(file) : file);
+                }
+            }
+
+            // The classpath is resolved by this manager only, the delegation doesn't open any jar.
+            return true;
+        }
+        return super.handleOption(current, remaining);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterable<JavaFileObject> list(Location location, String packageName, Set<Kind> kinds, boolean recurse) throws IOException {
+        if (location != StandardLocation.CLASS_PATH) {
+            return super.list(location, packageName, kinds, recurse);
+        }
+
+        List<JavaFileObject> list = new ArrayList();
+        for (Object entry : classpath) {
+            if (entry instanceof Archive archive) {
+                archive.list(packageName, kinds, recurse, release, encoding, list);
+            } else {
+                Path directory = (Path) entry;
+                Path root = packageName.isEmpty() ? directory : directory.resolve(packageName.replace('.', '/'));
+                if (Files.isDirectory(root)) {
+                    try (Stream<Path> files = recurse ? Files.walk(root) : Files.list(root)) {
+                        files.filter(Files::isRegularFile).forEach(file -> {
+                            String name = directory.relativize(file).toString().replace('\\', '/');
+                            if (kinds.contains(kind(name)) && (hidden.isEmpty() || !hidden.contains(file.normalize()))) {
+                                list.add(new Item(file.toUri(), name, null, file, encoding));
+                            }
+                        });
+                    }
+                }
+            }
+        }
+        return list;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String inferBinaryName(Location location, JavaFileObject file) {
+        if (file instanceof Item item) {
+            return item.binaryName;
+        }
+        return super.inferBinaryName(location, file);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isSameFile(FileObject a, FileObject b) {
+        if (a instanceof Item || b instanceof Item) {
+            return a.toUri().equals(b.toUri());
+        }
+        return super.isSameFile(a, b);
+    }
+
+    /**
+     * Release the jars used by this manager. The pooled manager is closed by its pool.
+     */
+    @Override
+    public void close() {
+        release();
+    }
+
+    /**
+     * Release the jars on the current classpath.
+     */
+    private void release() {
+        for (Object entry : classpath) {
+            if (entry instanceof Archive archive) {
+                archive.release();
+            }
+        }
+        classpath.clear();
+    }
+
+    /**
+     * Load the archive.
+     * 
+     * @param file A jar file.
+     * @return The indexed archive.
+     */
+    private Archive archive(Path file) {
+        try {
+            long size = Files.size(file);
+            long modified = Files.getLastModifiedTime(file).toMillis();
+
+            return archives.compute(file, (key, archive) -> {
+                if (archive == null || archive.size != size || archive.modified != modified) {
+                    if (archive != null) archive.close();
+                    archive = new Archive(file, size, modified, cache);
+                }
+                archive.acquire();
+                return archive;
+            });
+        } catch (IOException e) {
+            throw I.quiet(e);
+        }
+    }
+
+    /**
+     * Detect the kind of file.
+     * 
+     * @param name A file name.
+     * @return The kind.
+     */
+    private static Kind kind(String name) {
+        for (Kind kind : Kind.values()) {
+            if (kind != Kind.OTHER && name.endsWith(kind.extension)) {
+                return kind;
+            }
+        }
+        return Kind.OTHER;
+    }
+
+    /**
+     * The indexed jar file.
+     */
+    private static class Archive {
+
+        /** The jar file. */
+        private final Path file;
+
+        /** The file size. */
+        private final long size;
+
+        /** The last modified time. */
+        private final long modified;
+
+        /** The entry names for each package directory. */
+        private final Map<String, String[]> packages = new TreeMap();
+
+        /** The multi-release versions in ascending order. */
+        private final List<Integer> versions = new ArrayList();
+
+        /** The lazy opened zip. */
+        private ZipFile zip;
+
+        /** The number of managers which use this archive. */
+        private int users;
+
+        /**
+         * Load or build the index.
+         * 
+         * @param file
+         * @param size
+         * @param modified
+         * @param cache
+         */
+        private Archive(Path file, long size, long modified, Path cache) {
+            this.file = file;
+            this.size = size;
+            this.modified = modified;
+
+            Path index = cache.resolve(Integer.toHexString(Objects.hash(file.toString(), size, modified)) + ".index");
+            if (!read(index)) {
+                build();
+                write(index);
+            }
+
+            for (String directory : packages.keySet()) {
+                if (directory.startsWith(VERSIONS)) {
+                    int end = directory.indexOf('/', VERSIONS.length());
+                    try {
+                        Integer version = Integer.valueOf(directory.substring(VERSIONS.length(), end == -1 ? directory.length() : end));
+                        if (!versions.contains(version)) versions.add(version);
+                    } catch (NumberFormatException e) {
+                        // ignore
+                    }
+                }
+            }
+            versions.sort(null);
+        }
+
+        /**
+         * Build the index from central directory.
+         */
+        private void build() {
+            Map<String, List<String>> map = new LinkedHashMap();
+            try (ZipFile zip = new ZipFile(file.toFile())) {
+                Enumeration<? extends ZipEntry> entries = zip.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    if (!entry.isDirectory()) {
+                        String name = entry.getName();
+                        int index = name.lastIndexOf('/');
+                        map.computeIfAbsent(index == -1 ? "" : name.substring(0, index), key -> new ArrayList())
+                                .add(name.substring(index + 1));
+                    }
+                }
+            } catch (IOException e) {
+                throw I.quiet(e);
+            }
+
+            for (Entry<String, List<String>> entry : map.entrySet()) {
+                packages.put(entry.getKey(), entry.getValue().toArray(String[]::new));
+            }
+        }
+
+        /**
+         * Read the persisted index by memory mapping.
+         * 
+         * @param index
+         * @return Result.
+         */
+        private boolean read(Path index) {
+            if (Files.notExists(index)) {
+                return false;
+            }
+
+            try (FileChannel channel = FileChannel.open(index, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (buffer.getInt() != MAGIC || buffer.getLong() != size || buffer.getLong() != modified || !read(buffer)
+                        .equals(file.toString())) {
+                    return false;
+                }
+
+                int count = buffer.getInt();
+                for (int i = 0; i < count; i++) {
+                    String directory = read(buffer);
+                    String[] names = new String[buffer.getInt()];
+                    for (int j = 0; j < names.length; j++) {
+                        names[j] = read(buffer);
+                    }
+                    packages.put(directory, names);
+                }
+                return true;
+            } catch (Exception e) {
+                packages.clear();
+                return false;
+            }
+        }
+
+        /**
+         * Read the string. The index is always encoded in UTF-8 regardless of the source encoding.
+         * 
+         * @param buffer
+         * @return
+         */
+        private static String read(ByteBuffer buffer) {
+            byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Persist the index.
+         * 
+         * @param index
+         */
+        private void write(Path index) {
+            try {
+                Files.createDirectories(index.getParent());
+                Path temp = Files.createTempFile(index.getParent(), index.getFileName().toString(), ".part");
+                try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temp))) {
+                    out.writeInt(MAGIC);
+                    out.writeLong(size);
+                    out.writeLong(modified);
+                    write(out, file.toString());
+                    out.writeInt(packages.size());
+                    for (Entry<String, String[]> entry : packages.entrySet()) {
+                        write(out, entry.getKey());
+                        out.writeInt(entry.getValue().length);
+                        for (String name : entry.getValue()) {
+                            write(out, name);
+                        }
+                    }
+                }
+                Files.move(temp, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                // The index is only cache.
+            }
+        }
+
+        /**
+         * Write the string.
+         * 
+         * @param out
+         * @param value
+         */
+        private static void write(DataOutputStream out, String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeShort(bytes.length);
+            out.write(bytes);
+        }
+
+        /**
+         * List the entries in the package.
+         * 
+         * @param packageName A package name.
+         * @param kinds The accepted kinds.
+         * @param recurse Include the sub packages.
+         * @param release The release version.
+         * @param encoding The source encoding.
+         * @param list The result.
+         */
+        private void list(String packageName, Set<Kind> kinds, boolean recurse, int release, Charset encoding, List<JavaFileObject> list) {
+            String directory = packageName.replace('.', '/');
+
+            if (recurse) {
+                for (String name : packages.keySet()) {
+                    if (!name.startsWith(VERSIONS) && (directory.isEmpty() || name.equals(directory) || name.startsWith(directory + "/"))) {
+                        list(name, kinds, release, encoding, list);
+                    }
+                }
+            } else {
+                list(directory, kinds, release, encoding, list);
+            }
+        }
+
+        /**
+         * List the entries in the directory.
+         * 
+         * @param directory A directory name.
+         * @param kinds The accepted kinds.
+         * @param release The release version.
+         * @param encoding The source encoding.
+         * @param list The result.
+         */
+        private void list(String directory, Set<Kind> kinds, int release, Charset encoding, List<JavaFileObject> list) {
+            // The versioned entries override the base entries.
+            Map<String, String> entries = new LinkedHashMap();
+            add(directory, directory, kinds, entries);
+            for (int version : versions) {
+                if (version <= release) {
+                    add(VERSIONS + version + (directory.isEmpty() ? "" : "/" + directory), directory, kinds, entries);
+                }
+            }
+
+            for (Entry<String, String> entry : entries.entrySet()) {
+                list.add(new Item(URI.create("jar:" + file.toUri() + "!/" + entry.getValue()), entry.getKey(), this, null, encoding));
+            }
+        }
+
+        /**
+         * Collect the entries.
+         * 
+         * @param actual The actual directory in jar.
+         * @param directory The logical directory.
+         * @param kinds The accepted kinds.
+         * @param entries The entries by logical name.
+         */
+        private void add(String actual, String directory, Set<Kind> kinds, Map<String, String> entries) {
+            String[] names = packages.get(actual);
+            if (names != null) {
+                for (String name : names) {
+                    if (kinds.contains(kind(name))) {
+                        entries.put(directory.isEmpty() ? name : directory + "/" + name, actual.isEmpty() ? name : actual + "/" + name);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Read the entry.
+         * 
+         * @param uri The entry URI.
+         * @return The contents.
+         */
+        private synchronized byte[] read(URI uri) throws IOException {
+            if (zip == null) {
+                zip = new ZipFile(file.toFile());
+            }
+
+            String uriText = uri.toString();
+            ZipEntry entry = zip.getEntry(uriText.substring(uriText.lastIndexOf("!/") + 2));
+            if (entry == null) {
+                throw new IOException(uri + " is not found.");
+            }
+
+            try (InputStream in = zip.getInputStream(entry)) {
+                return in.readAllBytes();
+            }
+        }
+
+        /**
+         * Mark this archive in use.
+         */
+        private synchronized void acquire() {
+            users++;
+        }
+
+        /**
+         * Unmark this archive in use, the zip is closed when no manager uses it.
+         */
+        private synchronized void release() {
+            if (--users <= 0) {
+                users = 0;
+                close();
+            }
+        }
+
+        /**
+         * Close the zip.
+         */
+        private synchronized void close() {
+            if (zip != null) {
+                try {
+                    zip.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+                zip = null;
+            }
+        }
+    }
+
+    /**
+     * The classpath entry. The jar entry has the opaque URI, so {@link javax.tools.SimpleJavaFileObject} is
+     * not available.
+     */
+    private static class Item implements JavaFileObject {
+
+        /** The location. */
+        private final URI uri;
+
+        /** The kind of file. */
+        private final Kind kind;
+
+        /** The binary name. */
+        private final String binaryName;
+
+        /** The simple file name. */
+        private final String simpleName;
+
+        /** The container archive. */
+        private final Archive archive;
+
+        /** The file in directory. */
+        private final Path file;
+
+        /** The source encoding. */
+        private final Charset encoding;
+
+        /**
+         * @param uri The location.
+         * @param name The relative path from classpath root.
+         * @param archive The container archive.
+         * @param file The file in directory.
+         * @param encoding The source encoding.
+         */
+        private Item(URI uri, String name, Archive archive, Path file, Charset encoding) {
+            this.uri = uri;
+            this.kind = kind(name);
+            this.simpleName = name.substring(name.lastIndexOf('/') + 1);
+            this.binaryName = name.substring(0, name.length() - kind.extension.length()).replace('/', '.');
+            this.archive = archive;
+            this.file = file;
+            this.encoding = encoding;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public URI toUri() {
+            return uri;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String getName() {
+            return uri.toString();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean isNameCompatible(String simpleName, Kind kind) {
+            return this.kind == kind && this.simpleName.equals(simpleName + kind.extension);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public NestingKind getNestingKind() {
+            return null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Modifier getAccessLevel() {
+            return null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public InputStream openInputStream() throws IOException {
+            return new ByteArrayInputStream(archive == null ? Files.readAllBytes(file) : archive.read(uri));
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public OutputStream openOutputStream() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Reader openReader(boolean ignoreEncodingErrors) throws IOException {
+            return new StringReader(getCharContent(ignoreEncodingErrors).toString());
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) throws IOException {
+            return new String(openInputStream().readAllBytes(), encoding);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Writer openWriter() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public long getLastModified() {
+            try {
+                return archive == null ? Files.getLastModifiedTime(file).toMillis() : archive.modified;
+            } catch (IOException e) {
+                return 0;
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean delete() {
+            return false;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            return getName();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,970 @@
+/*
+ * Copyright (C) 2024 The BEE Development Team
+ *
+ * Licensed under the MIT License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          https://opensource.org/licenses/MIT
+ */
+package bee.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+import bee.Fail;
+import kiss.I;
+import psychopath.Directory;
+import psychopath.File;
+
+/**
+ * The jar (zip) writer which deflates the entries concurrently. The small entries are compressed in
+ * parallel each other, and the large entry is split into the blocks which are compressed in
+ * parallel with the preset dictionary of the previous block. The entries are written in the order
+ * of addition, so the output is deterministic regardless of the scheduling.
+ * <p>
+ * The same entry name is written only once, it is resolved by {@link Duplicate} strategy. The
+ * service providers in META-INF/services are concatenated and the first manifest (the project's
+ * own) is kept as it is. The manifest is always written as the first entry.
+ */
+public class JarWriter {
+
+    /** The size of block for the parallel deflate of large entry. */
+    private static final int BLOCK = 128 * 1024;
+
+    /** The size of preset dictionary. */
+    private static final int DICTIONARY = 32 * 1024;
+
+    /** The number of entries which are compressed ahead of writing. */
+    private static final int WINDOW = 1024;
+
+    /** The manifest location. */
+    private static final String MANIFEST = "META-INF/MANIFEST.MF";
+
+    /** The default timestamp for reproducible archive. (1980-02-01T00:00:00Z) */
+    private static final long EPOCH = 315532800000L + 31L * 24 * 60 * 60 * 1000;
+
+    /** The signature files. */
+    private static final Pattern SIGNATURE = Pattern.compile("META-INF/[^/]+\\.(SF|RSA|DSA|EC)", Pattern.CASE_INSENSITIVE);
+
+    /** The reusable deflater for each thread. */
+    private static final ThreadLocal<Deflater> deflaters = ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+
+    /** The input entries. */
+    private final List<Input> inputs = new ArrayList();
+
+    /** The added archives. */
+    private final List<Path> archives = new ArrayList();
+
+    /** The incremental mode. */
+    private boolean incremental;
+
+    /** The flag to store entries without compression. */
+    private boolean store;
+
+    /** The fixed timestamp for reproducible archive, negative value means the file timestamp. */
+    private long timestamp = timestamp(System.getenv("SOURCE_DATE_EPOCH"));
+
+    /** The strategy for the duplicated entries. */
+    private Duplicate duplicate = Duplicate.First;
+
+    /** The transformers. */
+    private final List<Transformer> transformers = new ArrayList();
+
+    /** The cache directory of transformed entries or null. */
+    private Path cache;
+
+    /** The shrinker or null. */
+    private Shrinker shrinker;
+
+    /** The cache keys which are used in the current writing. */
+    private final Set<String> cached = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Add all files in the specified directory. The directory itself is not included.
+     * 
+     * @param directory The source directory.
+     * @return Chainable API.
+     */
+    public JarWriter addDirectory(Directory directory) {
+        return addDirectory(directory, "");
+    }
+
+    /**
+     * Add all files in the specified directory under the specified path.
+     * 
+     * @param directory The source directory.
+     * @param prefix The path in the archive. (e.g. "root/")
+     * @return Chainable API.
+     */
+    public JarWriter addDirectory(Directory directory, String prefix) {
+        if (directory != null) {
+            Path root = directory.asJavaPath();
+            inputs.add(entries -> {
+                if (Files.isDirectory(root)) {
+                    try (Stream<Path> files = Files.walk(root)) {
+                        for (Path file : files.sorted().toList()) {
+                            String name = prefix + root.relativize(file).toString().replace('\\', '/');
+                            if (Files.isDirectory(file)) {
+                                if (!name.isEmpty()) directory(entries, name, Files.getLastModifiedTime(file).toMillis());
+                            } else {
+                                entries.add(new Entry(name, Files.getLastModifiedTime(file).toMillis(), () -> Files.readAllBytes(file)));
+                            }
+                        }
+                    }
+                }
+            });
+        }
+        return this;
+    }
+
+    /**
+     * Add the specified file.
+     * 
+     * @param file The source file.
+     * @param name The path in the archive.
+     * @return Chainable API.
+     */
+    public JarWriter addFile(File file, String name) {
+        if (file != null && name != null) {
+            Path path = file.asJavaPath();
+            inputs.add(entries -> {
+                entries.add(new Entry(name, Files.getLastModifiedTime(path).toMillis(), () -> Files.readAllBytes(path)));
+            });
+        }
+        return this;
+    }
+
+    /**
+     * Add all entries in the specified archive. The compressed data is copied as it is without
+     * inflating and deflating. The signature files are excluded because they are invalid in the
+     * other archive.
+     * 
+     * @param archive The source archive.
+     * @return Chainable API.
+     */
+    public JarWriter addArchive(File archive) {
+        if (archive != null) {
+            Path path = archive.asJavaPath().toAbsolutePath();
+            archives.add(path);
+            inputs.add(entries -> {
+                ZipArchive zip = entries.archives.get(path);
+
+                for (ZipArchive.Record record : zip.entries.values()) {
+                    String name = record.name();
+                    long time = record.modified();
+                    if (name.endsWith("/")) {
+                        directory(entries, name, time);
+                    } else if (!SIGNATURE.matcher(name).matches()) {
+                        entries.add(new Entry(name, time, () -> zip.read(record), zip, record));
+                    }
+                }
+            });
+        }
+        return this;
+    }
+
+    /**
+     * Configure how to handle the duplicated entries.
+     * 
+     * @param duplicate The strategy.
+     * @return Chainable API.
+     */
+    public JarWriter duplicate(Duplicate duplicate) {
+        if (duplicate != null) {
+            this.duplicate = duplicate;
+        }
+        return this;
+    }
+
+    /**
+     * Reuse the compressed data of the existing output archive. The entry whose contents are same
+     * as the existing one is copied without deflating, the changed entry is deflated and the
+     * removed entry is dropped. The contents are compared by inflating the existing entry, because
+     * inflation is much cheaper than deflation and CRC-32 can collide.
+     * 
+     * @param incremental True to enable incremental mode.
+     * @return Chainable API.
+     */
+    public JarWriter incremental(boolean incremental) {
+        this.incremental = incremental;
+        return this;
+    }
+
+    /**
+     * Store the entries without compression. The entries copied from the other archive keep their
+     * compressed data as it is.
+     * 
+     * @param store True to store entries.
+     * @return Chainable API.
+     */
+    public JarWriter store(boolean store) {
+        this.store = store;
+        return this;
+    }
+
+    /**
+     * Make the archive reproducible. The entries are sorted by name (the manifest is always first)
+     * and all timestamps are fixed to SOURCE_DATE_EPOCH environment variable (or 1980-02-01 if it
+     * is absent), so the identical inputs produce the byte-identical archive. This mode is enabled
+     * by default if SOURCE_DATE_EPOCH is defined. The incremental mode is ignored in this mode,
+     * because the reused data may be compressed by the other deflater.
+     * 
+     * @param reproducible True to enable reproducible mode.
+     * @return Chainable API.
+     */
+    public JarWriter reproducible(boolean reproducible) {
+        long epoch = timestamp(System.getenv("SOURCE_DATE_EPOCH"));
+        this.timestamp = reproducible ? epoch < 0 ? EPOCH : epoch : -1;
+        return this;
+    }
+
+    /**
+     * Parse SOURCE_DATE_EPOCH.
+     * 
+     * @param value The seconds from epoch.
+     * @return The milliseconds from epoch or -1.
+     */
+    private static long timestamp(String value) {
+        try {
+            return value == null || value.isBlank() ? -1 : Math.max(EPOCH, Long.parseLong(value.strip()) * 1000);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Transform the contents of entries while writing. The transformation runs in parallel, so the
+     * transformer must be thread-safe.
+     * 
+     * @param transformer The transformer to add.
+     * @return Chainable API.
+     */
+    public JarWriter transform(Transformer transformer) {
+        if (transformer != null) {
+            transformers.add(transformer);
+        }
+        return this;
+    }
+
+    /**
+     * Cache the transformed entries by the hash of its contents and the transformer identifiers.
+     * The unused cache is removed after writing.
+     * 
+     * @param directory The cache directory.
+     * @return Chainable API.
+     */
+    public JarWriter cache(Directory directory) {
+        this.cache = directory == null ? null : directory.asJavaPath();
+        return this;
+    }
+
+    /**
+     * Remove the unreachable classes and resources before writing.
+     * 
+     * @param shrinker The shrinker.
+     * @return Chainable API.
+     */
+    public JarWriter shrink(Shrinker shrinker) {
+        this.shrinker = shrinker;
+        return this;
+    }
+
+    /**
+     * Write all entries to the specified archive.
+     * 
+     * @param output The output archive.
+     * @return The number of written entries.
+     */
+    public int write(File output) {
+        Entries entries = new Entries(duplicate);
+        Path path = output.asJavaPath().toAbsolutePath();
+        cached.clear();
+
+        try {
+            // read the central directories in parallel
+            archives.stream().distinct().parallel().forEach(archive -> {
+                try {
+                    ZipArchive zip = new ZipArchive(archive, true);
+                    entries.closeables.add(zip);
+                    entries.archives.put(archive, zip);
+                } catch (IOException e) {
+                    throw I.quiet(e);
+                }
+            });
+
+            for (Input input : inputs) {
+                input.collect(entries);
+            }
+
+            if (shrinker != null) {
+                entries.keySet().retainAll(shrinker.select(new ArrayList(entries.keySet()), name -> {
+                    try {
+                        return entries.get(name).content.read();
+                    } catch (IOException e) {
+                        throw I.quiet(e);
+                    }
+                }));
+            }
+
+            ZipArchive previous = null;
+            if (incremental && timestamp < 0 && Files.isRegularFile(path)) {
+                try {
+                    previous = new ZipArchive(path);
+                    entries.closeables.add(previous);
+                } catch (IOException e) {
+                    // broken archive, rebuild from scratch
+                }
+            }
+            ZipArchive reusable = previous;
+
+            // the manifest must be the first entry
+            List<Entry> list = new ArrayList(entries.values());
+            if (0 <= timestamp) {
+                list.sort(Comparator.comparing(Entry::name));
+            }
+            if (entries.containsKey(MANIFEST)) {
+                list.remove(entries.get(MANIFEST));
+                list.add(0, entries.get(MANIFEST));
+                if (entries.containsKey("META-INF/")) {
+                    list.remove(entries.get("META-INF/"));
+                    list.add(0, entries.get("META-INF/"));
+                }
+            }
+
+            Files.createDirectories(path.getParent());
+            Path temp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+            try (Output out = new Output(new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024), timestamp)) {
+                List<Compressed> written = new ArrayList(list.size());
+                Deque<CompletableFuture<Compressed>> window = new ArrayDeque();
+
+                int next = 0;
+                while (written.size() < list.size()) {
+                    while (next < list.size() && window.size() < WINDOW) {
+                        Entry entry = list.get(next++);
+                        window.add(CompletableFuture.supplyAsync(() -> compress(entry, reusable)));
+                    }
+
+                    Compressed compressed = window.poll().join();
+                    compressed.offset = out.position;
+                    out.local(compressed);
+                    written.add(compressed);
+                }
+                out.central(written);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            // remove the unused cache
+            if (cache != null && Files.isDirectory(cache)) {
+                try (Stream<Path> files = Files.list(cache)) {
+                    for (Path file : files.toList()) {
+                        if (!cached.contains(file.getFileName().toString())) {
+                            Files.deleteIfExists(file);
+                        }
+                    }
+                }
+            }
+            return list.size();
+        } catch (CompletionException e) {
+            throw I.quiet(e.getCause());
+        } catch (IOException e) {
+            throw I.quiet(e);
+        } finally {
+            for (AutoCloseable closeable : entries.closeables) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    /**
+     * Register the directory entry.
+     * 
+     * @param entries All entries.
+     * @param name The directory name.
+     * @param time The modified time.
+     */
+    private static void directory(Entries entries, String name, long time) {
+        String directory = name.endsWith("/") ? name : name + "/";
+        parent(entries, directory, time);
+        entries.putIfAbsent(directory, new Entry(directory, time, null));
+    }
+
+    /**
+     * Register all parent directory entries of the specified entry.
+     * 
+     * @param entries All entries.
+     * @param name The entry name.
+     * @param time The modified time.
+     */
+    private static void parent(Entries entries, String name, long time) {
+        int index = name.lastIndexOf('/', name.endsWith("/") ? name.length() - 2 : name.length() - 1);
+        if (index != -1) {
+            String parent = name.substring(0, index + 1);
+            if (!entries.containsKey(parent)) {
+                parent(entries, parent, time);
+                entries.put(parent, new Entry(parent, time, null));
+            }
+        }
+    }
+
+    /**
+     * Compress the entry.
+     * 
+     * @param entry The target entry.
+     * @param previous The previous archive or null.
+     * @return The compressed entry.
+     */
+    private Compressed compress(Entry entry, ZipArchive previous) {
+        if (entry.content == null) {
+            return new Compressed(entry, ZipEntry.STORED, 0, 0, new byte[0]);
+        }
+
+        try {
+            // copy the compressed data as it is
+            List<Transformer> accepted = transformers.stream().filter(transformer -> transformer.accept(entry.name)).toList();
+            if (accepted.isEmpty() && entry.record != null && (entry.record.method() == ZipEntry.STORED || entry.record
+                    .method() == ZipEntry.DEFLATED)) {
+                return new Compressed(entry, entry.record.method(), entry.record.crc(), entry.record.size(), entry.archive.raw(entry.record));
+            }
+
+            byte[] bytes = transform(entry.content.read(), accepted);
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+
+            // reuse the unchanged entry as it is (only if it is compressed by the requested method),
+            // CRC-32 is not the content identity, so the previous contents are inflated and compared
+            if (previous != null) {
+                ZipArchive.Record record = previous.entries.get(entry.name);
+                if (record != null && record.crc() == crc.getValue() && record.size() == bytes.length && record
+                        .method() == (store ? ZipEntry.STORED : ZipEntry.DEFLATED) && Arrays.equals(previous.read(record), bytes)) {
+                    return new Compressed(entry, record.method(), record.crc(), record.size(), previous.raw(record));
+                }
+            }
+
+            if (store) {
+                return new Compressed(entry, ZipEntry.STORED, crc.getValue(), bytes.length, bytes);
+            }
+
+            byte[] deflated;
+            if (bytes.length <= BLOCK * 2) {
+                deflated = deflate(bytes, 0, bytes.length, true);
+            } else {
+                // compress the blocks in parallel, each block is primed with the tail of the
+                // previous block, so the concatenation is the valid deflate stream
+                int blocks = (bytes.length + BLOCK - 1) / BLOCK;
+                List<byte[]> compressed = IntStream.range(0, blocks)
+                        .parallel()
+                        .mapToObj(i -> deflate(bytes, i * BLOCK, Math.min(BLOCK, bytes.length - i * BLOCK), i == blocks - 1))
+                        .toList();
+
+                ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2);
+                for (byte[] block : compressed) {
+                    out.write(block);
+                }
+                deflated = out.toByteArray();
+            }
+
+            // the incompressible data is stored as it is
+            if (bytes.length <= deflated.length) {
+                return new Compressed(entry, ZipEntry.STORED, crc.getValue(), bytes.length, bytes);
+            } else {
+                return new Compressed(entry, ZipEntry.DEFLATED, crc.getValue(), bytes.length, deflated);
+            }
+        } catch (IOException e) {
+            throw I.quiet(e);
+        }
+    }
+
+    /**
+     * Transform the contents with cache.
+     * 
+     * @param bytes The original contents.
+     * @param transformers The transformers to apply.
+     * @return The transformed contents.
+     */
+    private byte[] transform(byte[] bytes, List<Transformer> transformers) throws IOException {
+        if (transformers.isEmpty()) {
+            return bytes;
+        }
+
+        Path file = null;
+        if (cache != null) {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                for (Transformer transformer : transformers) {
+                    digest.update(transformer.id().getBytes(StandardCharsets.UTF_8));
+                    digest.update((byte) 0);
+                }
+                digest.update(bytes);
+
+                String key = HexFormat.of().formatHex(digest.digest());
+                cached.add(key);
+                file = cache.resolve(key);
+                if (Files.isRegularFile(file)) {
+                    return Files.readAllBytes(file);
+                }
+            } catch (NoSuchAlgorithmException e) {
+                throw I.quiet(e);
+            }
+        }
+
+        for (Transformer transformer : transformers) {
+            bytes = transformer.transform(bytes);
+        }
+
+        if (file != null) {
+            Files.createDirectories(cache);
+            Path temp = Files.createTempFile(cache, file.getFileName().toString(), ".tmp");
+            Files.write(temp, bytes);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        return bytes;
+    }
+
+    /**
+     * Deflate the specified range.
+     * 
+     * @param bytes The whole data.
+     * @param offset The start position.
+     * @param length The length of data.
+     * @param last Whether this is the last block or not.
+     * @return The raw deflate data.
+     */
+    private static byte[] deflate(byte[] bytes, int offset, int length, boolean last) {
+        Deflater deflater = deflaters.get();
+        deflater.reset();
+        if (offset != 0) {
+            int size = Math.min(DICTIONARY, offset);
+            deflater.setDictionary(bytes, offset - size, size);
+        }
+        deflater.setInput(bytes, offset, length);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, length / 2));
+        byte[] buffer = new byte[Math.min(64 * 1024, Math.max(1024, length))];
+        if (last) {
+            deflater.finish();
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+        } else {
+            // flush to the byte boundary without the final block
+            int size;
+            do {
+                size = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                out.write(buffer, 0, size);
+            } while (size == buffer.length);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * The transformer of entry contents.
+     */
+    public interface Transformer {
+
+        /**
+         * Test whether the specified entry is the target or not.
+         * 
+         * @param name The entry name.
+         * @return True to transform.
+         */
+        boolean accept(String name);
+
+        /**
+         * Identify the transformation settings. The cached result is reused while the identifier
+         * is same.
+         * 
+         * @return The identifier.
+         */
+        String id();
+
+        /**
+         * Transform the contents.
+         * 
+         * @param bytes The original contents.
+         * @return The transformed contents.
+         */
+        byte[] transform(byte[] bytes);
+    }
+
+    /**
+     * The source of entries.
+     */
+    private interface Input {
+
+        /**
+         * Collect the entries.
+         * 
+         * @param entries All entries.
+         */
+        void collect(Entries entries) throws IOException;
+    }
+
+    /**
+     * The contents of entry.
+     */
+    private interface Content {
+
+        /**
+         * Read all bytes.
+         * 
+         * @return The contents.
+         */
+        byte[] read() throws IOException;
+    }
+
+    /**
+     * The strategy for the duplicated entries.
+     */
+    public enum Duplicate {
+        /** The first added entry is used. */
+        First,
+
+        /** The last added entry is used. */
+        Last,
+
+        /** The duplicated entry is error. */
+        Fail;
+    }
+
+    /**
+     * All entries in the order of addition.
+     */
+    @SuppressWarnings("serial")
+    private static class Entries extends LinkedHashMap<String, Entry> {
+
+        /** The opened resources. */
+        private final List<AutoCloseable> closeables = Collections.synchronizedList(new ArrayList());
+
+        /** The opened archives. */
+        private final Map<Path, ZipArchive> archives = new ConcurrentHashMap();
+
+        /** The strategy for the duplicated entries. */
+        private final Duplicate duplicate;
+
+        /**
+         * @param duplicate
+         */
+        private Entries(Duplicate duplicate) {
+            this.duplicate = duplicate;
+        }
+
+        /**
+         * Add the file entry.
+         * 
+         * @param entry The entry to add.
+         */
+        private void add(Entry entry) {
+            parent(this, entry.name, entry.time);
+
+            Entry previous = get(entry.name);
+            if (previous == null) {
+                put(entry.name, entry);
+            } else if (entry.name.startsWith("META-INF/services/")) {
+                put(entry.name, new Entry(entry.name, previous.time, () -> services(previous.content.read(), entry.content.read())));
+            } else if (entry.name.equals(MANIFEST)) {
+                // The attributes of libraries (Class-Path, Multi-Release, Add-Opens...) change the
+                // runtime behaviour, so they are never merged.
+            } else {
+                switch (duplicate) {
+                case Last:
+                    put(entry.name, entry);
+                    break;
+
+                case Fail:
+                    throw new Fail("Entry [" + entry.name + "] is duplicated.");
+
+                default:
+                    break;
+                }
+            }
+        }
+
+        /**
+         * Concatenate the service providers.
+         * 
+         * @param first The former providers.
+         * @param second The latter providers.
+         * @return The concatenated providers.
+         */
+        private static byte[] services(byte[] first, byte[] second) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(first.length + second.length + 1);
+            out.writeBytes(first);
+            if (first.length != 0 && first[first.length - 1] != '\n') {
+                out.write('\n');
+            }
+            out.writeBytes(second);
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * The entry.
+     * 
+     * @param name The entry name.
+     * @param time The modified time.
+     * @param content The contents, null means directory.
+     * @param archive The source archive or null.
+     * @param record The source entry in archive or null.
+     */
+    private record Entry(String name, long time, Content content, ZipArchive archive, ZipArchive.Record record) {
+
+        /**
+         * Build the entry which is not in archive.
+         * 
+         * @param name The entry name.
+         * @param time The modified time.
+         * @param content The contents, null means directory.
+         */
+        private Entry(String name, long time, Content content) {
+            this(name, time, content, null, null);
+        }
+    }
+
+    /**
+     * The compressed entry.
+     */
+    private static class Compressed {
+
+        /** The original entry. */
+        private final Entry entry;
+
+        /** The compression method. */
+        private final int method;
+
+        /** The CRC-32 of the original data. */
+        private final long crc;
+
+        /** The original size. */
+        private final long size;
+
+        /** The compressed data. */
+        private final byte[] data;
+
+        /** The offset of local header. */
+        private long offset;
+
+        /**
+         * @param entry
+         * @param method
+         * @param crc
+         * @param size
+         * @param data
+         */
+        private Compressed(Entry entry, int method, long crc, long size, byte[] data) {
+            this.entry = entry;
+            this.method = method;
+            this.crc = crc;
+            this.size = size;
+            this.data = data;
+        }
+    }
+
+    /**
+     * The zip format writer.
+     */
+    private static class Output extends FilterOutputStream {
+
+        /** The ZIP64 threshold. */
+        private static final long LIMIT = 0xFFFFFFFFL;
+
+        /** The current position. */
+        private long position;
+
+        /** The fixed timestamp or negative value. */
+        private final long timestamp;
+
+        /**
+         * @param out
+         * @param timestamp
+         */
+        private Output(OutputStream out, long timestamp) {
+            super(out);
+            this.timestamp = timestamp;
+        }
+
+        /**
+         * Write the local file header and data.
+         * 
+         * @param entry The compressed entry.
+         */
+        private void local(Compressed entry) throws IOException {
+            byte[] name = entry.entry.name.getBytes(StandardCharsets.UTF_8);
+
+            int32(0x04034b50);
+            int16(20); // version needed
+            int16(0x0800); // UTF-8 name
+            int16(entry.method);
+            int32(dos(entry.entry.time));
+            int32(entry.crc);
+            int32(entry.data.length);
+            int32(entry.size);
+            int16(name.length);
+            int16(0);
+            write(name);
+            write(entry.data);
+        }
+
+        /**
+         * Write the central directory and its end record.
+         * 
+         * @param entries All written entries.
+         */
+        private void central(List<Compressed> entries) throws IOException {
+            long start = position;
+
+            for (Compressed entry : entries) {
+                byte[] name = entry.entry.name.getBytes(StandardCharsets.UTF_8);
+                boolean zip64 = LIMIT <= entry.offset;
+
+                int32(0x02014b50);
+                int16(zip64 ? 45 : 20); // version made by
+                int16(zip64 ? 45 : 20); // version needed
+                int16(0x0800); // UTF-8 name
+                int16(entry.method);
+                int32(dos(entry.entry.time));
+                int32(entry.crc);
+                int32(entry.data.length);
+                int32(entry.size);
+                int16(name.length);
+                int16(zip64 ? 12 : 0); // extra
+                int16(0); // comment
+                int16(0); // disk
+                int16(0); // internal attributes
+                int32(entry.entry.content == null ? 0x10 : 0); // external attributes
+                int32(zip64 ? LIMIT : entry.offset);
+                write(name);
+                if (zip64) {
+                    int16(0x0001);
+                    int16(8);
+                    int64(entry.offset);
+                }
+            }
+
+            long end = position;
+            long size = end - start;
+            if (0xFFFF <= entries.size() || LIMIT <= start || LIMIT <= size) {
+                // ZIP64 end of central directory record
+                int32(0x06064b50);
+                int64(44);
+                int16(45);
+                int16(45);
+                int32(0);
+                int32(0);
+                int64(entries.size());
+                int64(entries.size());
+                int64(size);
+                int64(start);
+
+                // ZIP64 end of central directory locator
+                int32(0x07064b50);
+                int32(0);
+                int64(end);
+                int32(1);
+            }
+
+            int32(0x06054b50);
+            int16(0);
+            int16(0);
+            int16(Math.min(entries.size(), 0xFFFF));
+            int16(Math.min(entries.size(), 0xFFFF));
+            int32(Math.min(size, LIMIT));
+            int32(Math.min(start, LIMIT));
+            int16(0);
+        }
+
+        /**
+         * Convert to MS-DOS date and time. The fixed timestamp is converted in UTC to be independent
+         * from the build environment.
+         * 
+         * @param time The epoch milliseconds.
+         * @return The MS-DOS date and time.
+         */
+        private long dos(long time) {
+            LocalDateTime date = 0 <= timestamp ? LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneOffset.UTC)
+                    : LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault());
+            if (date.getYear() < 1980) {
+                return (1 << 21) | (1 << 16);
+            }
+            return (date.getYear() - 1980) << 25 | date.getMonthValue() << 21 | date.getDayOfMonth() << 16 | date.getHour() << 11 | date
+                    .getMinute() << 5 | date.getSecond() >> 1;
+        }
+
+        /**
+         * Write 2 bytes in little endian.
+         * 
+         * @param value
+         */
+        private void int16(int value) throws IOException {
+            out.write(value & 0xFF);
+            out.write((value >>> 8) & 0xFF);
+            position += 2;
+        }
+
+        /**
+         * Write 4 bytes in little endian.
+         * 
+         * @param value
+         */
+        private void int32(long value) throws IOException {
+            int16((int) (value & 0xFFFF));
+            int16((int) ((value >>> 16) & 0xFFFF));
+        }
+
+        /**
+         * Write 8 bytes in little endian.
+         * 
+         * @param value
+         */
+        private void int64(long value) throws IOException {
+            int32(value & LIMIT);
+            int32(value >>> 32);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void write(byte[] bytes) throws IOException {
+            out.write(bytes);
+            position += bytes.length;
+        }
+    }
+}
\ No newline at end of file
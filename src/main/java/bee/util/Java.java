@@ -9,8 +9,11 @@
  */
 package bee.util;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -18,33 +21,32 @@ import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.PrintWriter;
-import java.lang.management.ManagementFactory;
-import java.net.Socket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.rmi.registry.LocateRegistry;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.jar.Attributes;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
 import java.util.stream.Collectors;
 
-import javax.management.MBeanServer;
-import javax.management.MBeanServerConnection;
-import javax.management.MBeanServerInvocationHandler;
-import javax.management.MXBean;
-import javax.management.MalformedObjectNameException;
-import javax.management.ObjectName;
-import javax.management.StandardMBean;
-import javax.management.remote.JMXConnector;
-import javax.management.remote.JMXConnectorFactory;
-import javax.management.remote.JMXConnectorServer;
-import javax.management.remote.JMXConnectorServerFactory;
-import javax.management.remote.JMXServiceURL;
-
 import bee.Bee;
 import bee.UserInterface;
 import bee.api.Command;
@@ -56,16 +58,29 @@ import psychopath.Locator;
 
 public class Java {
 
-    /** The identifiable name. */
-    private static final ObjectName NAME;
+    /** The frame type of trace message. */
+    private static final int TRACE = 0;
 
-    static {
-        try {
-            NAME = new ObjectName(Transporter.class.getPackage().getName(), "type", Transporter.class.getSimpleName());
-        } catch (MalformedObjectNameException e) {
-            throw I.quiet(e);
-        }
-    }
+    /** The frame type of debug message. */
+    private static final int DEBUG = 1;
+
+    /** The frame type of info message. */
+    private static final int INFO = 2;
+
+    /** The frame type of warning message. */
+    private static final int WARNING = 3;
+
+    /** The frame type of error message. */
+    private static final int ERROR = 4;
+
+    /** The frame type of title message. */
+    private static final int TITLE = 5;
+
+    /** The frame type of serialized object. */
+    private static final int OBJECT = 6;
+
+    /** The frame type of the end of stream. */
+    private static final int END = 7;
 
     /** The classpaths. */
     private final List<Path> classpaths = new ArrayList();
@@ -269,9 +284,9 @@ public class Java {
      * </p>
      */
     public void run(Class<? extends JVM> mainClass, Object... arguments) {
-        // create address
-        int port = unboundedPort();
-        String address = "service:jmx:rmi:///jndi/rmi://localhost:" + port + "/hello";
+        // create channel
+        Receiver receiver = sync ? I.make(Receiver.class) : null;
+        String address = receiver == null ? "none" : receiver.address;
 
         List<String> command = new ArrayList();
         command.add(jdk == null ? "java" : jdk.file("bin/java").path());
@@ -321,20 +336,11 @@ public class Java {
             // build sub-process for java
             Process.with().workingDirectory(directory).encoding(encoding).inParallel().run(command);
         } else {
-            JVMTransporter listener = I.make(JVMTransporter.class);
-
             try {
-                LocateRegistry.createRegistry(port);
-                MBeanServer server = ManagementFactory.getPlatformMBeanServer();
-                server.registerMBean(listener, NAME);
-
-                JMXConnectorServer connector = JMXConnectorServerFactory.newJMXConnectorServer(new JMXServiceURL(address), null, server);
-                connector.start();
+                receiver.start();
 
                 // build sub-process for java
                 Process.with().workingDirectory(directory).encoding(encoding).run(command);
-
-                connector.stop();
             } catch (Throwable e) {
                 try {
                     e.printStackTrace(new PrintWriter(Locator.file("external-java-process-error.log").asJavaFile()));
@@ -344,27 +350,15 @@ public class Java {
 
                 throw I.quiet(e);
             } finally {
-                if (listener.error != null) {
-                    throw I.quiet(listener.error);
+                receiver.close();
+
+                if (receiver.error != null) {
+                    throw I.quiet(receiver.error);
                 }
             }
         }
     }
 
-    /**
-     * Search unbounded port.
-     * 
-     * @return
-     */
-    private int unboundedPort() {
-        try (Socket socket = new Socket()) {
-            socket.bind(null);
-            return socket.getLocalPort();
-        } catch (Exception e) {
-            throw I.quiet(e);
-        }
-    }
-
     /**
      * 
      */
@@ -392,17 +386,12 @@ public class Java {
 
             // execute main process
             JVM vm = (JVM) I.make(Class.forName(args[2]));
+            Sender sender = null;
             try {
                 // check sync mode
                 if (args[1].equals("true")) {
-                    // launch observer
-                    JMXConnector connector = JMXConnectorFactory.connect(new JMXServiceURL(args[0]));
-                    MBeanServerConnection connection = connector.getMBeanServerConnection();
-
-                    // create transporter proxy
-                    Transporter transporter = MBeanServerInvocationHandler.newProxyInstance(connection, NAME, Transporter.class, false);
-
-                    ((JVMUserInterface) vm.ui).transporter = transporter;
+                    sender = new Sender(args[0]);
+                    ((JVMUserInterface) vm.ui).sender = sender;
                 }
 
                 vm.args = Arrays.copyOfRange(args, 3, args.length);
@@ -411,20 +400,24 @@ public class Java {
                 e.printStackTrace();
                 vm.ui.error(e);
             } finally {
+                // flush all pending messages
+                if (sender != null) {
+                    sender.close();
+                }
                 System.exit(0);
             }
         }
 
         /**
-         * This class is {@link UserInterface} wrapper of {@link Transporter} for interprocess
+         * This class is {@link UserInterface} wrapper of {@link Sender} for interprocess
          * communication.
          * <p>
          * Must be non-static class to hide from class scanning.
          */
         private final class JVMUserInterface extends UserInterface {
 
-            /** The event transporter. */
-            private Transporter transporter;
+            /** The event sender. */
+            private Sender sender;
 
             /**
              * {@inheritDoc}
@@ -505,29 +498,10 @@ public class Java {
                     return;
                 }
 
-                switch (type) {
-                case TRACE:
-                    transporter.trace(message);
-                    break;
-
-                case DEBUG:
-                    transporter.debug(message);
-                    break;
-
-                case INFO:
-                    transporter.info(message);
-                    break;
-
-                case WARNING:
-                    transporter.warn(message);
-                    break;
-
-                case ERROR:
-                    transporter.error(message);
-                    break;
-
-                default:
-                    break;
+                if (sender == null) {
+                    System.out.println(message);
+                } else {
+                    sender.send(type, message.getBytes(StandardCharsets.UTF_8));
                 }
             }
 
@@ -546,7 +520,11 @@ public class Java {
                     out.writeObject(error);
                     out.close();
 
-                    transporter.object(bytes.toByteArray());
+                    if (sender == null) {
+                        error.printStackTrace();
+                    } else {
+                        sender.send(OBJECT, bytes.toByteArray());
+                    }
                 } catch (Exception ex) {
                     throw I.quiet(ex);
                 }
@@ -555,68 +533,26 @@ public class Java {
     }
 
     /**
-     * Transporter between parent process and sub process.
+     * Receiver of the sub process events. The sub process sends the length-prefixed binary frames
+     * through the unix domain socket (or the loopback TCP socket if the platform doesn't support
+     * it). Each frame consists of the type (1 byte), the payload length (4 bytes) and the payload.
      */
-    @MXBean
-    public static interface Transporter {
+    static class Receiver extends Thread {
 
-        /**
-         * Talk to user.
-         * 
-         * @param message
-         */
-        void title(String message);
-
-        /**
-         * Talk to user.
-         * 
-         * @param message
-         */
-        void trace(String message);
-
-        /**
-         * Talk to user.
-         * 
-         * @param message
-         */
-        void debug(String message);
-
-        /**
-         * Talk to user.
-         * 
-         * @param message
-         */
-        void info(String message);
+        /** The socket name counter. */
+        private static final AtomicInteger counter = new AtomicInteger();
 
-        /**
-         * Talk to user.
-         * 
-         * @param message
-         */
-        void warn(String message);
+        /** The actual user interface. */
+        private final UserInterface ui;
 
-        /**
-         * Error message
-         * 
-         * @param error
-         */
-        void error(String error);
+        /** The server socket. */
+        private final ServerSocketChannel server;
 
-        /**
-         * Send the serialized object.
-         * 
-         * @param bytes
-         */
-        void object(byte[] bytes);
-    }
+        /** The unix domain socket file. (null on TCP) */
+        private final Path socket;
 
-    /**
-     * @version 2018/03/29 22:48:25
-     */
-    static class JVMTransporter extends StandardMBean implements Transporter {
-
-        /** The actual user interface. */
-        private final UserInterface ui;
+        /** The address for sub process. */
+        private final String address;
 
         /** The sub process state. */
         private Throwable error;
@@ -624,75 +560,216 @@ public class Java {
         /**
          * Listen sub process event.
          */
-        private JVMTransporter(UserInterface ui) {
-            super(Transporter.class, false);
+        private Receiver(UserInterface ui) {
+            super("JVM Receiver");
+            setDaemon(true);
 
             this.ui = ui;
+
+            Path socket = Path.of(System.getProperty("java.io.tmpdir"), "bee-" + ProcessHandle.current().pid() + "-" + counter
+                    .incrementAndGet() + ".sock");
+            ServerSocketChannel server = null;
+            try {
+                try {
+                    Files.deleteIfExists(socket);
+                    server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+                    server.bind(UnixDomainSocketAddress.of(socket));
+                } catch (UnsupportedOperationException | IOException e) {
+                    if (server != null) server.close();
+
+                    // fallback to loopback
+                    socket = null;
+                    server = ServerSocketChannel.open();
+                    server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+                }
+            } catch (IOException e) {
+                throw I.quiet(e);
+            }
+
+            this.server = server;
+            this.socket = socket;
+            this.address = socket == null ? "tcp:" + server.socket().getLocalPort() : "unix:" + socket;
         }
 
         /**
          * {@inheritDoc}
          */
         @Override
-        public void title(String message) {
-            ui.title(message);
+        public void run() {
+            try (SocketChannel channel = server.accept();
+                    DataInputStream input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024))) {
+                int type;
+                while ((type = input.read()) != -1 && type != END) {
+                    byte[] payload = new byte[input.readInt()];
+                    input.readFully(payload);
+                    dispatch(type, payload);
+                }
+            } catch (ClosedChannelException | EOFException e) {
+                // sub process has exited without connection or has been killed
+            } catch (Throwable e) {
+                if (error == null) error = e;
+            }
         }
 
         /**
-         * {@inheritDoc}
+         * Dispatch the received frame.
+         * 
+         * @param type The frame type.
+         * @param payload The frame payload.
          */
-        @Override
-        public void trace(String message) {
-            ui.trace(message);
+        private void dispatch(int type, byte[] payload) throws Exception {
+            switch (type) {
+            case TRACE:
+                ui.trace(new String(payload, StandardCharsets.UTF_8));
+                break;
+
+            case DEBUG:
+                ui.debug(new String(payload, StandardCharsets.UTF_8));
+                break;
+
+            case INFO:
+                ui.info(new String(payload, StandardCharsets.UTF_8));
+                break;
+
+            case WARNING:
+                ui.warn(new String(payload, StandardCharsets.UTF_8));
+                break;
+
+            case ERROR:
+                ui.error(new String(payload, StandardCharsets.UTF_8));
+                break;
+
+            case TITLE:
+                ui.title(new String(payload, StandardCharsets.UTF_8));
+                break;
+
+            case OBJECT:
+                Object o = new ObjectInputStream(new ByteArrayInputStream(payload)).readObject();
+                if (o instanceof Throwable e) {
+                    error = e;
+                } else {
+                    ui.info(o);
+                }
+                break;
+
+            default:
+                break;
+            }
         }
 
         /**
-         * {@inheritDoc}
+         * Wait until all frames are received and release the socket.
          */
-        @Override
-        public void debug(String message) {
-            ui.debug(message);
+        private void close() {
+            try {
+                // the connected channel is still alive even if the server socket is closed
+                server.close();
+                join();
+
+                if (socket != null) {
+                    Files.deleteIfExists(socket);
+                }
+            } catch (IOException | InterruptedException e) {
+                throw I.quiet(e);
+            }
         }
+    }
+
+    /**
+     * Sender of the sub process events. The frames are queued and written in batch by the
+     * dedicated thread, so the sub process doesn't wait for the parent process on each message. The
+     * queue is bounded, the producer is blocked when the parent process can't keep up.
+     */
+    private static class Sender extends Thread {
+
+        /** The pending frames. */
+        private final BlockingQueue<ByteBuffer> queue = new ArrayBlockingQueue(1024);
+
+        /** The connection to the parent process. */
+        private final SocketChannel channel;
 
         /**
-         * {@inheritDoc}
+         * Connect to the parent process.
+         * 
+         * @param address The address of parent process.
          */
-        @Override
-        public void info(String message) {
-            ui.info(message);
+        private Sender(String address) throws IOException {
+            super("JVM Sender");
+            setDaemon(true);
+
+            if (address.startsWith("unix:")) {
+                channel = SocketChannel.open(UnixDomainSocketAddress.of(address.substring(5)));
+            } else {
+                channel = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address.substring(4))));
+            }
+            start();
         }
 
         /**
-         * {@inheritDoc}
+         * Send the frame.
+         * 
+         * @param type The frame type.
+         * @param payload The frame payload.
          */
-        @Override
-        public void warn(String message) {
-            ui.warn(message);
+        private void send(int type, byte[] payload) {
+            ByteBuffer frame = ByteBuffer.allocate(5 + payload.length).put((byte) type).putInt(payload.length).put(payload).flip();
+
+            try {
+                while (!queue.offer(frame, 100, TimeUnit.MILLISECONDS)) {
+                    if (!isAlive()) {
+                        return; // the parent process has gone
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
         }
 
         /**
          * {@inheritDoc}
          */
         @Override
-        public void error(String error) {
-            ui.error(error);
+        public void run() {
+            List<ByteBuffer> batch = new ArrayList();
+
+            try (channel) {
+                while (true) {
+                    batch.add(queue.take());
+                    queue.drainTo(batch);
+
+                    ByteBuffer[] buffers = batch.toArray(ByteBuffer[]::new);
+                    long remaining = 0;
+                    boolean end = false;
+                    for (ByteBuffer buffer : buffers) {
+                        remaining += buffer.remaining();
+                        end |= buffer.get(0) == END;
+                    }
+
+                    while (0 < remaining) {
+                        remaining -= channel.write(buffers);
+                    }
+
+                    if (end) {
+                        return;
+                    }
+                    batch.clear();
+                }
+            } catch (Exception e) {
+                // the parent process has gone
+            }
         }
 
         /**
-         * {@inheritDoc}
+         * Flush all pending frames and close the connection.
          */
-        @Override
-        public void object(byte[] bytes) {
+        private void close() {
+            send(END, new byte[0]);
+
             try {
-                Object o = new ObjectInputStream(new ByteArrayInputStream(bytes)).readObject();
-                if (o instanceof Throwable e) {
-                    error = e;
-                } else {
-                    ui.info(o);
-                }
-            } catch (Exception e) {
-                throw I.quiet(e);
+                join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
         }
     }
-}
\ No newline at end of file
+}
@@ -21,25 +21,34 @@ import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import javax.annotation.processing.Processor;
 import javax.lang.model.SourceVersion;
 import javax.tools.Diagnostic;
 import javax.tools.DiagnosticListener;
 import javax.tools.JavaCompiler.CompilationTask;
+import javax.tools.JavaFileManager;
 import javax.tools.JavaFileObject;
 import javax.tools.SimpleJavaFileObject;
 import javax.tools.StandardJavaFileManager;
 import javax.tools.ToolProvider;
 
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFileReader;
 import org.eclipse.jdt.internal.compiler.tool.EclipseCompiler;
 
 import bee.BeeOption;
@@ -48,6 +57,7 @@ import bee.Platform;
 import bee.UserInterface;
 import bee.api.Library;
 import bee.api.Require;
+import bee.util.CompilationIndex.Processing;
 import kiss.I;
 import kiss.Signal;
 import kiss.Variable;
@@ -61,6 +71,9 @@ public class JavaCompiler {
     /** The default java compiler. */
     private static javax.tools.JavaCompiler Javac = ToolProvider.getSystemJavaCompiler();
 
+    /** The minimum number of sources to split into the independent partitions. */
+    private static final int PARTITION_THRESHOLD = 200;
+
     /** The user interface. */
     private final UserInterface ui;
 
@@ -85,6 +98,9 @@ public class JavaCompiler {
     /** The annotation processor's options. */
     private final Map<String, String> processorOptions = new HashMap();
 
+    /** The incremental types of annotation processors. (processor class name → type) */
+    private final Map<String, ProcessorType> processorTypes = new HashMap();
+
     /** The output directory. */
     private Directory output;
 
@@ -112,9 +128,15 @@ public class JavaCompiler {
     /** The compiler flag. */
     private boolean compileAll = BeeOption.Cacheless.value();
 
+    /** The header flag. */
+    private boolean header = false;
+
     /** The error listener. */
     private DiagnosticListener<JavaFileObject> listener;
 
+    /** The changes of the latest compilation. */
+    private Changes changes = new Changes(Set.of(), Set.of(), Set.of());
+
     /**
      * Create new Java compiler.
      * 
@@ -298,6 +320,21 @@ public class JavaCompiler {
         return this;
     }
 
+    /**
+     * Declare the incremental type of the specified annotation processor. The type is also read
+     * from the metadata (META-INF/gradle/incremental.annotation.processors) of the processor. Any
+     * change requires to compile all sources if the type of some processor is unknown.
+     * 
+     * @param processor The processor class name.
+     * @param type The incremental type.
+     */
+    public JavaCompiler setProcessorType(String processor, ProcessorType type) {
+        if (processor != null && type != null) {
+            processorTypes.put(processor, type);
+        }
+        return this;
+    }
+
     /**
      * <p>
      * Set the destination directory for class files. If a class is part of a package, javac puts
@@ -434,6 +471,19 @@ public class JavaCompiler {
         return this;
     }
 
+    /**
+     * Emit the header classes only. All method bodies are stripped before compiling, so the output
+     * has the same ABI as the full classes but can't be executed. The downstream source set can be
+     * compiled against the header classes while the full compilation is still running.
+     * 
+     * @param header
+     */
+    public JavaCompiler setHeaderOnly(boolean header) {
+        this.header = header;
+
+        return this;
+    }
+
     /**
      * Set release version.
      * 
@@ -508,6 +558,7 @@ public class JavaCompiler {
         // Output Directory
         // =============================================
         // Create direcotry if needed.
+        boolean incremental = output != null;
         if (output == null) {
             output = Locator.temporaryDirectory();
         }
@@ -547,36 +598,86 @@ public class JavaCompiler {
         // =============================================
         // Java Class Paths
         // =============================================
-        if (classpaths.size() != 0) {
+        // The incremental compilation requires the unchanged classes in the output directory.
+        List<Location> paths = new ArrayList(classpaths);
+        if (incremental && !paths.contains(output)) {
+            paths.add(output);
+        }
+
+        if (paths.size() != 0) {
             options.add("-cp");
-            options.add(classpaths.stream().map(Location::toString).collect(Collectors.joining(File.pathSeparator)));
+            options.add(paths.stream().map(Location::toString).collect(Collectors.joining(File.pathSeparator)));
         }
 
         // =============================================
         // Java Source Files
         // =============================================
         List<JavaFileObject> sources = new ArrayList(codes);
+        Map<String, Path> files = new LinkedHashMap();
 
         this.sources.walkFileWithBase("**.java").to(e -> {
-            if (output == null) {
-                sources.add(new Source(e.ⅱ));
-            } else {
-                psychopath.File classFile = output.directory(e.ⅰ.relativize(e.ⅱ.parent())).file(e.ⅱ.base() + ".class");
+            Path file = e.ⅱ.asJavaPath();
+            files.putIfAbsent(e.ⅰ.asJavaPath().relativize(file).toString().replace('\\', '/'), file);
+        });
 
-                if (compileAll || classFile.lastModifiedMilli() < e.ⅱ.lastModifiedMilli()) {
-                    sources.add(new Source(e.ⅱ));
-                }
+        // Select the changed sources and their dependents by the persistent dependency graph. The
+        // class directories on classpath are compared by ABI, so the change of method body in
+        // upstream doesn't recompile this source set.
+        //
+        // ECJ compiles the changed sources at first, and their dependents are compiled in the next
+        // round only if the structure of class is changed.
+        Processing processing = processing();
+        boolean rounds = useECJ && !header && processing == Processing.None;
+        CompilationIndex index = null;
+        Set<String> targets = files.keySet();
+        if (incremental) {
+            index = new CompilationIndex(output.asJavaPath(), configuration(options));
+            targets = index.select(files, classpaths.stream().map(Location::asJavaPath).toList(), compileAll, processing, rounds);
+        }
+
+        // The independent sources are split into partitions which are compiled concurrently.
+        // Javac can't resolve the sources in other partition, so the annotation processors which
+        // may generate them disable the partitioning.
+        List<List<String>> partitions = List.of();
+        if (!useECJ && codes.isEmpty() && processors.isEmpty() && processorClasses.isEmpty() && PARTITION_THRESHOLD <= targets.size()) {
+            partitions = SourcePartitioner.partition(files, targets, Runtime.getRuntime().availableProcessors());
+        }
+
+        Map<String, JavaFileObject> objects = new LinkedHashMap();
+        if (header) {
+            // The unchanged header classes are resolved from the output directory, the sourcepath
+            // is not used because it will compile the full sources implicitly.
+            Map<Path, String> stubs = HeaderGenerator.generate(targets.stream().map(files::get).toList(), encoding);
+            for (String target : targets) {
+                objects.put(target, new Source(files.get(target), stubs.get(files.get(target))));
+            }
+        } else {
+            for (String target : targets) {
+                objects.put(target, new Source(files.get(target)));
             }
-        });
 
-        options.add("-sourcepath");
-        options.add(String.join(File.pathSeparator, this.sources.walkFile().map(Location::toString).toList()));
+            // The partition is closed under the source references, the other classes are
+            // resolved from the output directory.
+            if (partitions.size() <= 1) {
+                options.add("-sourcepath");
+                options.add(String.join(File.pathSeparator, this.sources.walkFile().map(Location::toString).toList()));
+            }
+        }
+        sources.addAll(objects.values());
 
         // =============================================
         // Start Compiling
         // =============================================
+        // The emitted classes are buffered and written only if they are changed. The stale classes
+        // are deleted after that, and are hidden from the classpath until then.
+        Path out = output.asJavaPath();
+        Set<Path> stale = index == null ? Set.of() : index.stale();
+        Map<Path, byte[]> emitted = new ConcurrentHashMap();
+
         // check target source size
         if (sources.isEmpty()) {
+            changes = BufferedClassOutput.commit(out, emitted, stale);
+            if (index != null) index.update(files, targets, Map.of(), false);
             ui.info("Nothing to compile - all classes are up to date");
             return Thread.currentThread().getContextClassLoader();
         }
@@ -585,7 +686,7 @@ public class JavaCompiler {
         // Select Compiler
         // =============================================
         Variable<javax.tools.JavaCompiler> compiler = Variable.of(Javac);
-        if (useECJ) {
+        if (useECJ && !header) {
             new Require("org.eclipse.jdt : ecj") {
                 {
                     compiler.set(new EclipseCompiler());
@@ -604,18 +705,109 @@ public class JavaCompiler {
             listener = new Listener();
         }
 
-        StandardJavaFileManager manager = compiler.v.getStandardFileManager(listener, null, encoding);
-        CompilationTask task = compiler.v.getTask(null, manager, listener, options, null, sources);
-
-        if (processors.size() != 0) {
-            task.setProcessors(processors);
-        }
-
         // =============================================
         // Run Compiler
         // =============================================
-        if (task.call()) {
-            ui.info("Compiles " + sources.size() + " sources. (" + (useECJ ? "ECJ" : "Javac") + ")");
+        boolean success;
+        ProcessingTracker tracker = null;
+        if (1 < partitions.size()) {
+            success = compile(options, partitions.stream().map(partition -> partition.stream().map(objects::get).toList()).toList(), stale, emitted);
+        } else if (compiler.v == Javac) {
+            try (FileManagerPool.Lease lease = FileManagerPool.acquire(encoding, normalize(releaseVersion), paths.stream().map(Location::asJavaPath).toList());
+                    IndexedFileManager indexed = index(lease, stale)) {
+                JavaFileManager manager = new BufferedClassOutput(indexed, out, emitted);
+
+                // track the files generated by the annotation processors
+                if (index != null && processing != Processing.None) {
+                    manager = tracker = new ProcessingTracker(manager, out, files);
+                }
+                CompilationTask task = Javac.getTask(null, manager, listener, options, null, sources);
+
+                if (processors.size() != 0) {
+                    task.setProcessors(processors);
+                }
+                success = task.call();
+            }
+        } else {
+            // ECJ writes the classes by itself, so the stale classes are kept in memory to detect
+            // the actual changes.
+            Map<Path, Long> before = stamps(out);
+            Map<Path, byte[]> previous = new HashMap();
+            List<JavaFileObject> round = sources;
+
+            while (true) {
+                Set<Path> staled = new HashSet();
+                for (Path file : stale) {
+                    if (!previous.containsKey(file) && Files.isRegularFile(file)) {
+                        previous.put(file, read(file));
+                        staled.add(file);
+                    }
+                }
+                BufferedClassOutput.commit(out, emitted, stale);
+
+                StandardJavaFileManager manager = compiler.v.getStandardFileManager(listener, null, encoding);
+                CompilationTask task = compiler.v.getTask(null, manager, listener, options, null, round);
+
+                if (processors.size() != 0) {
+                    task.setProcessors(processors);
+                }
+                success = task.call();
+
+                if (!success || !rounds || index == null) {
+                    break;
+                }
+
+                // compile the direct dependents of the structurally changed classes
+                Set<String> names = new HashSet();
+                for (Path file : staled) {
+                    if (file.toString().endsWith(".class") && structural(previous.get(file), file)) {
+                        String name = out.toAbsolutePath().normalize().relativize(file).toString().replace('\\', '/');
+                        names.add(name.substring(0, name.length() - 6));
+                    }
+                }
+
+                Set<String> dependents = index.expand(files, names);
+                if (dependents.isEmpty()) {
+                    break;
+                }
+                targets.addAll(dependents);
+                round = dependents.stream().map(target -> (JavaFileObject) new Source(files.get(target))).toList();
+                sources.addAll(round);
+            }
+
+            Set<String> added = new TreeSet();
+            Set<String> changed = new TreeSet();
+            Set<String> removed = new TreeSet();
+            Map<Path, Long> after = stamps(out);
+            after.forEach((file, stamp) -> {
+                String name = out.relativize(file).toString().replace('\\', '/').replaceAll("\\.class$", "").replace('/', '.');
+                if (previous.containsKey(file.toAbsolutePath().normalize())) {
+                    if (!Arrays.equals(previous.get(file.toAbsolutePath().normalize()), read(file))) changed.add(name);
+                } else if (!before.containsKey(file)) {
+                    added.add(name);
+                } else if (!before.get(file).equals(stamp)) {
+                    changed.add(name);
+                }
+            });
+            before.forEach((file, stamp) -> {
+                if (!after.containsKey(file)) {
+                    removed.add(out.relativize(file).toString().replace('\\', '/').replaceAll("\\.class$", "").replace('/', '.'));
+                }
+            });
+            changes = new Changes(added, changed, removed);
+        }
+
+        if (success) {
+            // the regenerated files are not stale
+            Map<String, Set<String>> generated = tracker == null ? Map.of() : tracker.generated();
+            for (String path : generated.keySet()) {
+                stale.remove(out.toAbsolutePath().normalize().resolve(path));
+            }
+
+            if (compiler.v == Javac) changes = BufferedClassOutput.commit(out, emitted, stale);
+            if (index != null) index.update(files, targets, generated, processing == Processing.Aggregating);
+            ui.info("Compiles " + sources.size() + " sources" + (1 < partitions.size() ? " in " + partitions
+                    .size() + " partitions" : "") + ". (" + (useECJ ? "ECJ" : "Javac") + ")");
         } else {
             throw new Fail("Fail compiling code.");
         }
@@ -627,6 +819,254 @@ public class JavaCompiler {
         }
     }
 
+    /**
+     * Compile the independent partitions concurrently. The emitted classes are buffered until all
+     * partitions are compiled, so no task reads the class file which is being written by other task.
+     * 
+     * @param options The compiler options.
+     * @param partitions The source partitions.
+     * @param stale The stale classes.
+     * @param emitted The emitted classes.
+     * @return Result.
+     */
+    private boolean compile(List<String> options, List<List<JavaFileObject>> partitions, Set<Path> stale, Map<Path, byte[]> emitted) {
+        List<Path> paths = classpaths.stream().map(Location::asJavaPath).toList();
+
+        return partitions.parallelStream().map(partition -> {
+            try (FileManagerPool.Lease lease = FileManagerPool.acquire(encoding, normalize(releaseVersion), paths);
+                    IndexedFileManager indexed = index(lease, stale)) {
+                return Javac.getTask(null, new BufferedClassOutput(indexed, output.asJavaPath(), emitted), listener, options, null, partition).call();
+            }
+        }).toList().stream().allMatch(Boolean::booleanValue);
+    }
+
+    /**
+     * Wrap the pooled manager to resolve the classpath by the persistent package index.
+     * 
+     * @param lease The pooled manager.
+     * @param hidden The class files to hide.
+     * @return The indexed manager which must be closed to release the jars.
+     */
+    private IndexedFileManager index(FileManagerPool.Lease lease, Set<Path> hidden) {
+        return new IndexedFileManager(lease.manager, Platform.BeeHome.directory("index").asJavaPath(), releaseVersion.ordinal(), encoding, hidden);
+    }
+
+    /**
+     * Collect the modified time of all class files.
+     * 
+     * @param directory The output directory.
+     * @return The modified time for each class file.
+     */
+    private static Map<Path, Long> stamps(Path directory) {
+        Map<Path, Long> stamps = new HashMap();
+        if (Files.isDirectory(directory)) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.filter(path -> path.toString().endsWith(".class")).toList()) {
+                    stamps.put(file, Files.getLastModifiedTime(file).toMillis());
+                }
+            } catch (IOException e) {
+                throw I.quiet(e);
+            }
+        }
+        return stamps;
+    }
+
+    /**
+     * Classify the annotation processors by their incremental types.
+     * 
+     * @return The incremental type of annotation processing.
+     */
+    private Processing processing() {
+        if (processors.isEmpty() && processorClasses.isEmpty()) {
+            return Processing.None;
+        }
+
+        // ECJ writes the generated files by itself, so they can't be tracked.
+        if (useECJ) {
+            return Processing.Full;
+        }
+
+        Map<String, String> metadata = new HashMap();
+        for (Location location : processorClassPaths) {
+            metadata(location.asJavaPath(), metadata);
+        }
+        for (Processor processor : processors) {
+            Location location = Locator.locate(processor.getClass());
+            if (location != null) metadata(location.asJavaPath(), metadata);
+        }
+
+        Map<String, Processor> instances = new LinkedHashMap();
+        for (String name : processorClasses) {
+            instances.put(name, null);
+        }
+        for (Processor processor : processors) {
+            instances.put(processor.getClass().getName(), processor);
+        }
+
+        boolean aggregating = false;
+        for (Entry<String, Processor> entry : instances.entrySet()) {
+            ProcessorType type = processorTypes.get(entry.getKey());
+            if (type == null) {
+                String declared = metadata.getOrDefault(entry.getKey(), "");
+
+                // The dynamic processor declares its type by the supported options.
+                if (declared.equals("dynamic") && entry.getValue() != null) {
+                    Set<String> supported = entry.getValue().getSupportedOptions();
+                    declared = supported.contains("org.gradle.annotation.processing.aggregating") ? "aggregating"
+                            : supported.contains("org.gradle.annotation.processing.isolating") ? "isolating" : "";
+                }
+
+                switch (declared) {
+                case "isolating":
+                    type = ProcessorType.Isolating;
+                    break;
+
+                case "aggregating":
+                    type = ProcessorType.Aggregating;
+                    break;
+
+                default:
+                    return Processing.Full;
+                }
+            }
+            aggregating |= type == ProcessorType.Aggregating;
+        }
+        return aggregating ? Processing.Aggregating : Processing.Isolating;
+    }
+
+    /**
+     * Read the incremental types of annotation processors from the metadata.
+     * 
+     * @param location The processor location. (jar or directory)
+     * @param metadata The incremental types. (processor class name → type)
+     */
+    private static void metadata(Path location, Map<String, String> metadata) {
+        String name = "META-INF/gradle/incremental.annotation.processors";
+        String text = null;
+
+        try {
+            if (Files.isDirectory(location)) {
+                Path file = location.resolve(name);
+                if (Files.isRegularFile(file)) text = Files.readString(file);
+            } else if (Files.isRegularFile(location)) {
+                try (ZipFile zip = new ZipFile(location.toFile())) {
+                    ZipEntry entry = zip.getEntry(name);
+                    if (entry != null) text = new String(zip.getInputStream(entry).readAllBytes(), Platform.Encoding);
+                }
+            }
+        } catch (IOException e) {
+            // the processor of unknown type
+        }
+
+        if (text != null) {
+            for (String line : text.split("\\R")) {
+                int index = line.indexOf(',');
+                if (index != -1) {
+                    metadata.putIfAbsent(line.substring(0, index).strip(), line.substring(index + 1).strip().toLowerCase());
+                }
+            }
+        }
+    }
+
+    /**
+     * Check whether the structure of class is changed or not by ECJ.
+     * 
+     * @param previous The previous bytes.
+     * @param file The current class file.
+     * @return Result.
+     */
+    private static boolean structural(byte[] previous, Path file) {
+        if (Files.notExists(file)) {
+            return true;
+        }
+
+        try {
+            return new ClassFileReader(previous, file.getFileName().toString().toCharArray()).hasStructuralChanges(read(file));
+        } catch (Exception e) {
+            return true;
+        }
+    }
+
+    /**
+     * Read all bytes of the file.
+     * 
+     * @param file The target file.
+     * @return The bytes.
+     */
+    private static byte[] read(Path file) {
+        try {
+            return Files.readAllBytes(file);
+        } catch (IOException e) {
+            throw I.quiet(e);
+        }
+    }
+
+    /**
+     * Get the changes of class files by the latest compilation.
+     * 
+     * @return The changes.
+     */
+    public Changes getChanges() {
+        return changes;
+    }
+
+    /**
+     * Compute the fingerprint of the compiler configuration. All sources must be recompiled when
+     * the compiler, options or any library on classpath is changed.
+     * 
+     * @param options The compiler options.
+     * @return A fingerprint.
+     */
+    private int configuration(List<String> options) {
+        List<Object> values = new ArrayList(options);
+        values.add(useECJ);
+        values.add(header);
+
+        for (Location classpath : classpaths) {
+            Path path = classpath.asJavaPath();
+            if (Files.isRegularFile(path)) {
+                try {
+                    values.add(path.toAbsolutePath());
+                    values.add(Files.size(path));
+                    values.add(Files.getLastModifiedTime(path).toMillis());
+                } catch (IOException e) {
+                    throw I.quiet(e);
+                }
+            }
+        }
+        return values.hashCode();
+    }
+
+    /**
+     * The actual changes of class files in the output directory.
+     * 
+     * @param added The binary names of added classes.
+     * @param changed The binary names of rewritten classes.
+     * @param removed The binary names of removed classes.
+     */
+    public record Changes(Set<String> added, Set<String> changed, Set<String> removed) {
+
+        /**
+         * Check whether no class is changed.
+         * 
+         * @return Result.
+         */
+        public boolean isEmpty() {
+            return added.isEmpty() && changed.isEmpty() && removed.isEmpty();
+        }
+    }
+
+    /**
+     * The incremental type of annotation processor.
+     */
+    public enum ProcessorType {
+        /** The processor generates each file from the single originating element. */
+        Isolating,
+
+        /** The processor generates the file from the multiple originating elements. */
+        Aggregating;
+    }
+
     /**
      * 
      */
@@ -686,6 +1126,16 @@ public class JavaCompiler {
             this.file = file;
         }
 
+        /**
+         * @param file
+         * @param code
+         */
+        private Source(Path file, String code) {
+            super(file.toUri(), Kind.SOURCE);
+            this.file = file;
+            this.code = Objects.requireNonNull(code);
+        }
+
         /**
          * @param file
          */
@@ -698,7 +1148,7 @@ public class JavaCompiler {
          */
         @Override
         public CharSequence getCharContent(boolean ignoreEncodingErrors) throws IOException {
-            if (file == null) {
+            if (code != null) {
                 return code;
             } else {
                 return Files.readString(file);
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2024 The BEE Development Team
+ *
+ * Licensed under the MIT License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          https://opensource.org/licenses/MIT
+ */
+package bee.util;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+
+/**
+ * {@link JavaFileManager} which records the originating sources of the files generated by the
+ * annotation processors. The {@link javax.annotation.processing.Filer} of javac passes the
+ * originating elements to the file manager as their files, so the processors which are loaded by
+ * javac itself are also tracked.
+ */
+class ProcessingTracker extends ForwardingJavaFileManager<JavaFileManager> {
+
+    /** The output directory. */
+    private final Path output;
+
+    /** The current sources. (absolute source file → relative source path) */
+    private final Map<Path, String> sources = new HashMap();
+
+    /** The generated files. (relative output path → relative source paths) */
+    private final Map<String, Set<String>> generated = new ConcurrentHashMap();
+
+    /**
+     * @param manager The delegation.
+     * @param output The output directory.
+     * @param sources All current sources. (relative source path → file)
+     */
+    ProcessingTracker(JavaFileManager manager, Path output, Map<String, Path> sources) {
+        super(manager);
+        this.output = output.toAbsolutePath().normalize();
+
+        for (Entry<String, Path> entry : sources.entrySet()) {
+            this.sources.put(entry.getValue().toAbsolutePath().normalize(), entry.getKey());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public JavaFileObject getJavaFileForOutputForOriginatingFiles(Location location, String className, Kind kind, FileObject... originatingFiles)
+            throws IOException {
+        JavaFileObject file = getJavaFileForOutput(location, className, kind, originatingFiles.length == 0 ? null : originatingFiles[0]);
+        record(file, originatingFiles);
+        return file;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public FileObject getFileForOutputForOriginatingFiles(Location location, String packageName, String relativeName, FileObject... originatingFiles)
+            throws IOException {
+        FileObject file = getFileForOutput(location, packageName, relativeName, originatingFiles.length == 0 ? null : originatingFiles[0]);
+        record(file, originatingFiles);
+        return file;
+    }
+
+    /**
+     * Record the generated file and its originating sources. The origin which is not the source
+     * (e.g. the class on classpath) is ignored, so the file without any origin can't be updated
+     * incrementally.
+     * 
+     * @param file The generated file.
+     * @param originatingFiles The originating files.
+     */
+    private void record(FileObject file, FileObject[] originatingFiles) {
+        Set<String> origins = new LinkedHashSet();
+        for (FileObject origin : originatingFiles) {
+            Path path = path(origin);
+            if (path != null) {
+                String source = sources.get(path);
+                if (source != null) {
+                    origins.add(source);
+                } else if (path.startsWith(output) && path.toString().endsWith(Kind.SOURCE.extension)) {
+                    // the source which is generated in the previous round
+                    origins.add(relativize(path));
+                }
+            }
+        }
+
+        Path path = path(file);
+        if (path != null) {
+            generated.put(relativize(path), origins);
+        }
+    }
+
+    /**
+     * Get all generated files.
+     * 
+     * @return The generated files. (relative output path → relative source paths)
+     */
+    Map<String, Set<String>> generated() {
+        return generated;
+    }
+
+    /**
+     * Compute the relative path from the output directory.
+     * 
+     * @param path The target file.
+     * @return The relative path.
+     */
+    private String relativize(Path path) {
+        return path.startsWith(output) ? output.relativize(path).toString().replace('\\', '/') : path.toString();
+    }
+
+    /**
+     * Resolve the local file path.
+     * 
+     * @param file The target file.
+     * @return The resolved path or null.
+     */
+    private static Path path(FileObject file) {
+        try {
+            return Path.of(file.toUri()).toAbsolutePath().normalize();
+        } catch (Exception e) {
+            // not local file
+            return null;
+        }
+    }
+}
\ No newline at end of file
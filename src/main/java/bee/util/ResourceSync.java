@@ -0,0 +1,252 @@
+/*
+ * Copyright (C) 2024 The BEE Development Team
+ *
+ * Licensed under the MIT License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          https://opensource.org/licenses/MIT
+ */
+package bee.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.stream.Stream;
+
+import kiss.I;
+import kiss.Signal;
+import psychopath.Directory;
+
+/**
+ * Synchronizes the resource files (all files except Java sources) to the output directory. The
+ * state of the previous synchronization is persisted, so the unchanged resources are skipped by
+ * their size and modified time, the touched but identical resources are skipped by their hash, and
+ * the resources which are removed from the source directories are deleted from the output.
+ */
+public class ResourceSync {
+
+    /** The format identifier. */
+    private static final int MAGIC = 0xBEE5E5C0;
+
+    /** The output directory. */
+    private final Path output;
+
+    /** The state file. */
+    private final Path state;
+
+    /** The minimum size of resources to link instead of copying. */
+    private long link = Long.MAX_VALUE;
+
+    /**
+     * Build the synchronizer for the specified output.
+     * 
+     * @param output The output directory.
+     * @param type The resource type. The resources of the different type are managed separately
+     *            even if they share the same output.
+     */
+    public ResourceSync(Directory output, String type) {
+        this.output = output.asJavaPath();
+        this.state = this.output.resolveSibling(this.output.getFileName() + "." + type + ".resources");
+    }
+
+    /**
+     * Create the hard link instead of copying for the large resources. The linked resource shares
+     * the contents with its source, so it must not be modified in the output directory.
+     * 
+     * @param threshold The minimum size (bytes) to link.
+     * @return Chainable API.
+     */
+    public ResourceSync link(long threshold) {
+        this.link = threshold < 0 ? Long.MAX_VALUE : threshold;
+        return this;
+    }
+
+    /**
+     * Synchronize the resources.
+     * 
+     * @param inputs The source directories. The latter directory precedes the former.
+     * @return The result.
+     */
+    public Result sync(Signal<Directory> inputs) {
+        // collect the current resources
+        Map<String, Path> resources = new LinkedHashMap();
+        for (Directory input : inputs.toList()) {
+            Path root = input.asJavaPath();
+            if (Files.isDirectory(root)) {
+                try (Stream<Path> files = Files.walk(root)) {
+                    files.filter(file -> Files.isRegularFile(file) && !file.toString().endsWith(".java"))
+                            .forEach(file -> resources.put(root.relativize(file).toString().replace('\\', '/'), file));
+                } catch (IOException e) {
+                    throw I.quiet(e);
+                }
+            }
+        }
+
+        Map<String, Stamp> previous = read();
+        Map<String, Stamp> current = new HashMap();
+        int copied = 0;
+        int unchanged = 0;
+        int deleted = 0;
+
+        try {
+            for (Entry<String, Path> entry : resources.entrySet()) {
+                Path source = entry.getValue();
+                Path target = output.resolve(entry.getKey());
+                long size = Files.size(source);
+                long modified = Files.getLastModifiedTime(source).toMillis();
+
+                Stamp stamp = previous.get(entry.getKey());
+                if (stamp != null && stamp.size == size && stamp.modified == modified && Files.isRegularFile(target) && Files
+                        .size(target) == size) {
+                    current.put(entry.getKey(), stamp);
+                    unchanged++;
+                    continue;
+                }
+
+                long hash = hash(source);
+                if (Files.isRegularFile(target) && Files.size(target) == size && hash(target) == hash) {
+                    unchanged++;
+                } else {
+                    copy(source, target, size);
+                    copied++;
+                }
+                current.put(entry.getKey(), new Stamp(size, modified, hash));
+            }
+
+            // delete the orphan resources
+            for (String path : previous.keySet()) {
+                if (!resources.containsKey(path) && Files.deleteIfExists(output.resolve(path))) {
+                    deleted++;
+                }
+            }
+        } catch (IOException e) {
+            throw I.quiet(e);
+        }
+
+        write(current);
+        return new Result(copied, unchanged, deleted);
+    }
+
+    /**
+     * Copy or link the resource atomically.
+     * 
+     * @param source The source file.
+     * @param target The target file.
+     * @param size The file size.
+     */
+    private void copy(Path source, Path target, long size) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling(target.getFileName() + ".sync");
+        Files.deleteIfExists(temp);
+
+        if (link <= size) {
+            try {
+                Files.createLink(temp, source);
+            } catch (IOException | UnsupportedOperationException e) {
+                // different file system
+                Files.copy(source, temp, StandardCopyOption.COPY_ATTRIBUTES);
+            }
+        } else {
+            Files.copy(source, temp, StandardCopyOption.COPY_ATTRIBUTES);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Compute the hash of contents.
+     * 
+     * @param file A target file.
+     * @return The hash.
+     */
+    private static long hash(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            return ByteBuffer.wrap(digest.digest()).getLong();
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw I.quiet(e);
+        }
+    }
+
+    /**
+     * Read the state of the previous synchronization.
+     * 
+     * @return The state.
+     */
+    private Map<String, Stamp> read() {
+        Map<String, Stamp> stamps = new HashMap();
+        if (Files.isRegularFile(state)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(state)))) {
+                if (in.readInt() == MAGIC) {
+                    int size = in.readInt();
+                    for (int i = 0; i < size; i++) {
+                        stamps.put(in.readUTF(), new Stamp(in.readLong(), in.readLong(), in.readLong()));
+                    }
+                }
+            } catch (IOException e) {
+                stamps.clear();
+            }
+        }
+        return stamps;
+    }
+
+    /**
+     * Write the state of the current synchronization.
+     * 
+     * @param stamps The state.
+     */
+    private void write(Map<String, Stamp> stamps) {
+        try {
+            Files.createDirectories(state.getParent());
+            Path temp = Files.createTempFile(state.getParent(), state.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(stamps.size());
+                for (Entry<String, Stamp> entry : stamps.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(entry.getValue().size);
+                    out.writeLong(entry.getValue().modified);
+                    out.writeLong(entry.getValue().hash);
+                }
+            }
+            Files.move(temp, state, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw I.quiet(e);
+        }
+    }
+
+    /**
+     * The synchronized state of resource.
+     */
+    private record Stamp(long size, long modified, long hash) {
+    }
+
+    /**
+     * The result of synchronization.
+     * 
+     * @param copied The number of copied resources.
+     * @param unchanged The number of unchanged resources.
+     * @param deleted The number of deleted resources.
+     */
+    public record Result(int copied, int unchanged, int deleted) {
+    }
+}
\ No newline at end of file
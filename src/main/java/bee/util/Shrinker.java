@@ -0,0 +1,320 @@
+/*
+ * Copyright (C) 2024 The BEE Development Team
+ *
+ * Licensed under the MIT License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          https://opensource.org/licenses/MIT
+ */
+package bee.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.objectweb.asm.ClassReader;
+
+import kiss.I;
+
+/**
+ * Reachability based class shrinker. The reachable classes are traced from the root classes, the
+ * service providers in META-INF/services, the implementations of {@link kiss.Extensible} and the
+ * classes matching the keep rules. The class name in the string constant is also treated as the
+ * reference for the simple reflection.
+ * <p>
+ * The resource is retained when it is in META-INF, in the root directory or in the package which
+ * has any reachable class.
+ */
+public class Shrinker {
+
+    /** The class file extension. */
+    private static final String CLASS = ".class";
+
+    /** The class name in descriptor and signature. */
+    private static final Pattern DESCRIPTOR = Pattern.compile("L([\\w/$]+)[;<]");
+
+    /** The versioned entry of multi-release jar. */
+    private static final Pattern VERSIONED = Pattern.compile("META-INF/versions/\\d+/(.+)");
+
+    /** The root classes. (internal name) */
+    private final Set<String> roots = new HashSet();
+
+    /** The keep rules. */
+    private final List<Pattern> keeps = new ArrayList();
+
+    /** The number of removed entries in the latest selection. */
+    private int removed;
+
+    /**
+     * Add the root class.
+     * 
+     * @param className The fully qualified class name.
+     * @return Chainable API.
+     */
+    public Shrinker root(String className) {
+        if (className != null && !className.isBlank()) {
+            roots.add(className.replace('.', '/'));
+        }
+        return this;
+    }
+
+    /**
+     * Keep all classes which match the specified pattern. The pattern is the fully qualified class
+     * name, '*' matches the any characters except for '.' and '**' matches any characters. (e.g.
+     * "com.example.api.*", "com.example.**")
+     * 
+     * @param pattern The class name pattern.
+     * @return Chainable API.
+     */
+    public Shrinker keep(String pattern) {
+        if (pattern != null && !pattern.isBlank()) {
+            StringBuilder regex = new StringBuilder();
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                if (c == '*') {
+                    if (i + 1 < pattern.length() && pattern.charAt(i + 1) == '*') {
+                        regex.append(".*");
+                        i++;
+                    } else {
+                        regex.append("[^/]*");
+                    }
+                } else if (c == '.') {
+                    regex.append('/');
+                } else {
+                    regex.append(Pattern.quote(String.valueOf(c)));
+                }
+            }
+            keeps.add(Pattern.compile(regex.toString()));
+        }
+        return this;
+    }
+
+    /**
+     * Get the number of removed entries in the latest selection.
+     * 
+     * @return The number of removed entries.
+     */
+    public int removed() {
+        return removed;
+    }
+
+    /**
+     * Select the retained entries.
+     * 
+     * @param names All entry names.
+     * @param contents The entry reader.
+     * @return The retained entry names.
+     */
+    Set<String> select(Collection<String> names, Function<String, byte[]> contents) {
+        // classify entries (internal class name → entry names)
+        Map<String, List<String>> classes = new HashMap();
+        List<String> services = new ArrayList();
+        for (String name : names) {
+            String internal = internal(name);
+            if (internal != null) {
+                classes.computeIfAbsent(internal, k -> new ArrayList()).add(name);
+            } else if (name.startsWith("META-INF/services/") && !name.endsWith("/")) {
+                services.add(name);
+            }
+        }
+
+        // read class hierarchy in parallel
+        Map<String, String[]> supers = new ConcurrentHashMap();
+        classes.entrySet().parallelStream().forEach(entry -> {
+            ClassReader reader = new ClassReader(contents.apply(entry.getValue().get(0)));
+            List<String> types = new ArrayList(List.of(reader.getInterfaces()));
+            if (reader.getSuperName() != null) types.add(reader.getSuperName());
+            supers.put(entry.getKey(), types.toArray(String[]::new));
+        });
+
+        // collect roots
+        Set<String> reachable = ConcurrentHashMap.newKeySet();
+        List<String> frontier = new ArrayList();
+        Map<String, Boolean> extensible = new HashMap();
+        for (String internal : classes.keySet()) {
+            boolean kept = keeps.stream().anyMatch(keep -> keep.matcher(internal).matches());
+            if (kept || roots.contains(internal) || extensible(internal, supers, extensible)) {
+                frontier.add(internal);
+            }
+        }
+        for (String service : services) {
+            frontier.add(service.substring(18).replace('.', '/'));
+            for (String line : new String(contents.apply(service), StandardCharsets.UTF_8).split("\\R")) {
+                int comment = line.indexOf('#');
+                String provider = (comment == -1 ? line : line.substring(0, comment)).strip();
+                if (!provider.isEmpty()) {
+                    frontier.add(provider.replace('.', '/'));
+                }
+            }
+        }
+
+        // trace references level by level in parallel
+        while (!frontier.isEmpty()) {
+            frontier = frontier.parallelStream()
+                    .filter(internal -> classes.containsKey(internal) && reachable.add(internal))
+                    .flatMap(internal -> classes.get(internal).stream())
+                    .flatMap(name -> references(contents.apply(name), classes.keySet()).stream())
+                    .filter(internal -> !reachable.contains(internal))
+                    .distinct()
+                    .toList();
+        }
+
+        // retain entries
+        Set<String> packages = new HashSet();
+        for (String internal : reachable) {
+            int index = internal.lastIndexOf('/');
+            packages.add(index == -1 ? "" : internal.substring(0, index));
+        }
+
+        Set<String> retained = new HashSet();
+        for (String name : names) {
+            if (name.endsWith("/")) {
+                continue;
+            }
+
+            String internal = internal(name);
+            boolean retain;
+            if (internal == null) {
+                int index = name.lastIndexOf('/');
+                retain = index == -1 || name.startsWith("META-INF/") || packages.contains(name.substring(0, index));
+            } else if (internal.equals("module-info")) {
+                retain = true;
+            } else if (internal.endsWith("/package-info")) {
+                retain = packages.contains(internal.substring(0, internal.lastIndexOf('/')));
+            } else {
+                retain = reachable.contains(internal);
+            }
+
+            if (retain) {
+                retained.add(name);
+
+                // retain parent directories
+                int index = name.lastIndexOf('/');
+                while (index != -1 && retained.add(name.substring(0, index + 1))) {
+                    index = name.lastIndexOf('/', index - 1);
+                }
+            }
+        }
+
+        removed = names.size() - retained.size();
+        return retained;
+    }
+
+    /**
+     * Compute the internal class name of the entry.
+     * 
+     * @param name The entry name.
+     * @return The internal class name or null.
+     */
+    private static String internal(String name) {
+        if (!name.endsWith(CLASS)) {
+            return null;
+        }
+
+        Matcher matcher = VERSIONED.matcher(name);
+        if (matcher.matches()) {
+            name = matcher.group(1);
+        } else if (name.startsWith("META-INF/")) {
+            return null;
+        }
+        return name.substring(0, name.length() - CLASS.length());
+    }
+
+    /**
+     * Test whether the specified class implements {@link kiss.Extensible} or not.
+     * 
+     * @param internal The internal class name.
+     * @param supers The class hierarchy.
+     * @param cache The memo.
+     * @return The result.
+     */
+    private static boolean extensible(String internal, Map<String, String[]> supers, Map<String, Boolean> cache) {
+        if (internal.equals("kiss/Extensible")) {
+            return true;
+        }
+
+        Boolean result = cache.get(internal);
+        if (result == null) {
+            cache.put(internal, false); // guard from cycle
+            result = false;
+            for (String type : supers.getOrDefault(internal, new String[0])) {
+                if (extensible(type, supers, cache)) {
+                    result = true;
+                    break;
+                }
+            }
+            cache.put(internal, result);
+        }
+        return result;
+    }
+
+    /**
+     * Collect all referenced classes from the constant pool. All descriptors and signatures in the
+     * class file are stored in the constant pool, so the class name pattern in them is traced.
+     * 
+     * @param bytes The class file.
+     * @param classes All known classes.
+     * @return The referenced classes.
+     */
+    private static Set<String> references(byte[] bytes, Set<String> classes) {
+        ClassReader reader = new ClassReader(bytes);
+        char[] buffer = new char[reader.getMaxStringLength()];
+        Set<String> references = new HashSet();
+
+        for (int i = 1; i < reader.getItemCount(); i++) {
+            int offset = reader.getItem(i);
+            if (offset == 0) {
+                continue; // the second slot of long or double
+            }
+
+            switch (reader.readByte(offset - 1)) {
+            case 1: // Utf8 (descriptor and signature)
+                Matcher matcher = DESCRIPTOR.matcher(utf8(bytes, offset));
+                while (matcher.find()) {
+                    references.add(matcher.group(1));
+                }
+                break;
+
+            case 7: // Class
+                references.add(reader.readUTF8(offset, buffer));
+                break;
+
+            case 8: // String (the class name for reflection)
+                String internal = reader.readUTF8(offset, buffer).replace('.', '/');
+                if (classes.contains(internal)) {
+                    references.add(internal);
+                }
+                break;
+            }
+        }
+        return references;
+    }
+
+    /**
+     * Decode the Utf8 constant.
+     * 
+     * @param bytes The class file.
+     * @param offset The start position of constant.
+     * @return The decoded text.
+     */
+    private static String utf8(byte[] bytes, int offset) {
+        try {
+            return new DataInputStream(new ByteArrayInputStream(bytes, offset, bytes.length - offset)).readUTF();
+        } catch (IOException e) {
+            throw I.quiet(e);
+        }
+    }
+}
\ No newline at end of file
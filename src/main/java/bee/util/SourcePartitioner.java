@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2024 The BEE Development Team
+ *
+ * Licensed under the MIT License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          https://opensource.org/licenses/MIT
+ */
+package bee.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import kiss.I;
+
+/**
+ * Splits the sources into the partitions which can be compiled independently. The sources are
+ * connected when one contains the name of type declared in other, so each partition is closed
+ * under the source references. This token scan is conservative, it may connect the unrelated
+ * sources but never separates the related ones.
+ */
+class SourcePartitioner {
+
+    /** The identifier pattern. */
+    private static final Pattern IDENTIFIER = Pattern.compile("[\\p{javaJavaIdentifierStart}][\\p{javaJavaIdentifierPart}]*");
+
+    /** The type declaration pattern. */
+    private static final Pattern DECLARATION = Pattern.compile("\\b(?:class|interface|enum|record)\\s+([\\p{javaJavaIdentifierStart}][\\p{javaJavaIdentifierPart}]*)");
+
+    /**
+     * Split the target sources into the partitions. The modular sources are never split because
+     * each partition must be compiled with the module declaration.
+     * 
+     * @param files All sources.
+     * @param targets The sources to compile.
+     * @param max The maximum number of partitions.
+     * @return The balanced partitions.
+     */
+    static List<List<String>> partition(Map<String, Path> files, Collection<String> targets, int max) {
+        List<String> names = new ArrayList(targets);
+        if (files.keySet().stream().anyMatch(name -> name.equals("module-info.java") || name.endsWith("/module-info.java"))) {
+            return List.of(names);
+        }
+        List<String> codes = new ArrayList();
+        Map<String, List<Integer>> declarations = new HashMap();
+
+        for (int i = 0; i < names.size(); i++) {
+            try {
+                String code = Files.readString(files.get(names.get(i)));
+                codes.add(code);
+
+                Matcher matcher = DECLARATION.matcher(code);
+                while (matcher.find()) {
+                    declarations.computeIfAbsent(matcher.group(1), key -> new ArrayList()).add(i);
+                }
+            } catch (IOException e) {
+                throw I.quiet(e);
+            }
+        }
+
+        // connect the referring sources
+        int[] parents = new int[names.size()];
+        for (int i = 0; i < parents.length; i++) {
+            parents[i] = i;
+        }
+
+        for (int i = 0; i < names.size(); i++) {
+            Set<String> tokens = new HashSet();
+            Matcher matcher = IDENTIFIER.matcher(codes.get(i));
+            while (matcher.find()) {
+                tokens.add(matcher.group());
+            }
+
+            for (String token : tokens) {
+                List<Integer> declared = declarations.get(token);
+                if (declared != null) {
+                    for (int j : declared) {
+                        parents[root(parents, i)] = root(parents, j);
+                    }
+                }
+            }
+        }
+
+        Map<Integer, List<String>> components = new HashMap();
+        for (int i = 0; i < names.size(); i++) {
+            components.computeIfAbsent(root(parents, i), key -> new ArrayList()).add(names.get(i));
+        }
+
+        // assign the largest component to the smallest partition
+        List<List<String>> partitions = new ArrayList();
+        for (int i = 0; i < Math.min(max, components.size()); i++) {
+            partitions.add(new ArrayList());
+        }
+
+        components.values()
+                .stream()
+                .sorted(Comparator.<List<String>> comparingInt(List::size).reversed())
+                .forEach(component -> partitions.stream().min(Comparator.comparingInt(List::size)).get().addAll(component));
+
+        return partitions;
+    }
+
+    /**
+     * Find the root of the connected sources.
+     * 
+     * @param parents The parent table.
+     * @param index The source index.
+     * @return The root index.
+     */
+    private static int root(int[] parents, int index) {
+        while (parents[index] != index) {
+            parents[index] = parents[parents[index]];
+            index = parents[index];
+        }
+        return index;
+    }
+}
\ No newline at end of file
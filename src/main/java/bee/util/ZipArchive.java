@@ -0,0 +1,270 @@
+/*
+ * Copyright (C) 2024 The BEE Development Team
+ *
+ * Licensed under the MIT License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          https://opensource.org/licenses/MIT
+ */
+package bee.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * The reader of zip archive which exposes the compressed data of each entry as it is, so the entry
+ * can be copied to the other archive without inflating and deflating.
+ */
+class ZipArchive implements Closeable {
+
+    /** The ZIP64 marker. */
+    private static final long LIMIT = 0xFFFFFFFFL;
+
+    /** The archive file. */
+    private final FileChannel channel;
+
+    /** The memory-mapped archive or null. */
+    private final ByteBuffer mapped;
+
+    /** The entries in the order of central directory. */
+    final Map<String, Record> entries = new LinkedHashMap();
+
+    /**
+     * Read the central directory of the specified archive.
+     * 
+     * @param path The archive file.
+     */
+    ZipArchive(Path path) throws IOException {
+        this(path, false);
+    }
+
+    /**
+     * Read the central directory of the specified archive.
+     * 
+     * @param path The archive file.
+     * @param map True to map the whole archive into memory. The mapped file can't be replaced
+     *            until it is unmapped by GC on some platforms, so don't map the file to update.
+     */
+    ZipArchive(Path path, boolean map) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+
+        try {
+            long size = channel.size();
+            this.mapped = map && size <= Integer.MAX_VALUE ? channel.map(MapMode.READ_ONLY, 0, size) : null;
+
+            // search the end of central directory record
+            int length = (int) Math.min(size, 0xFFFF + 22);
+            ByteBuffer tail = read(size - length, length);
+            int end = -1;
+            for (int i = length - 22; 0 <= i; i--) {
+                if (tail.getInt(i) == 0x06054b50) {
+                    end = i;
+                    break;
+                }
+            }
+            if (end == -1) {
+                throw new ZipException("Central directory is not found in " + path);
+            }
+
+            long count = tail.getShort(end + 10) & 0xFFFF;
+            long directorySize = tail.getInt(end + 12) & LIMIT;
+            long directoryOffset = tail.getInt(end + 16) & LIMIT;
+
+            if (count == 0xFFFF || directorySize == LIMIT || directoryOffset == LIMIT) {
+                // ZIP64 end of central directory locator
+                ByteBuffer locator = read(size - length + end - 20, 20);
+                if (locator.getInt(0) == 0x07064b50) {
+                    ByteBuffer record = read(locator.getLong(8), 56);
+                    count = record.getLong(32);
+                    directorySize = record.getLong(40);
+                    directoryOffset = record.getLong(48);
+                }
+            }
+
+            ByteBuffer directory = read(directoryOffset, (int) directorySize);
+            int position = 0;
+            for (long i = 0; i < count; i++) {
+                if (directory.getInt(position) != 0x02014b50) {
+                    throw new ZipException("Invalid central directory in " + path);
+                }
+                int method = directory.getShort(position + 10) & 0xFFFF;
+                int time = directory.getInt(position + 12);
+                long crc = directory.getInt(position + 16) & LIMIT;
+                long compressed = directory.getInt(position + 20) & LIMIT;
+                long uncompressed = directory.getInt(position + 24) & LIMIT;
+                int nameLength = directory.getShort(position + 28) & 0xFFFF;
+                int extraLength = directory.getShort(position + 30) & 0xFFFF;
+                int commentLength = directory.getShort(position + 32) & 0xFFFF;
+                long offset = directory.getInt(position + 42) & LIMIT;
+
+                byte[] name = new byte[nameLength];
+                directory.get(position + 46, name);
+
+                // ZIP64 extended information
+                int extra = position + 46 + nameLength;
+                int extraEnd = extra + extraLength;
+                while (extra + 4 <= extraEnd) {
+                    int id = directory.getShort(extra) & 0xFFFF;
+                    int blockSize = directory.getShort(extra + 2) & 0xFFFF;
+                    if (id == 0x0001) {
+                        int field = extra + 4;
+                        if (uncompressed == LIMIT) {
+                            uncompressed = directory.getLong(field);
+                            field += 8;
+                        }
+                        if (compressed == LIMIT) {
+                            compressed = directory.getLong(field);
+                            field += 8;
+                        }
+                        if (offset == LIMIT) {
+                            offset = directory.getLong(field);
+                        }
+                    }
+                    extra += 4 + blockSize;
+                }
+
+                String decoded = new String(name, StandardCharsets.UTF_8);
+                entries.putIfAbsent(decoded, new Record(decoded, method, time, crc, compressed, uncompressed, offset));
+                position = extraEnd + commentLength;
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e instanceof IOException io ? io : new ZipException("Invalid archive " + path + " (" + e.getMessage() + ")");
+        }
+    }
+
+    /**
+     * Read the compressed data of the specified entry.
+     * 
+     * @param record The target entry.
+     * @return The compressed data.
+     */
+    byte[] raw(Record record) throws IOException {
+        ByteBuffer header = read(record.offset, 30);
+        if (header.getInt(0) != 0x04034b50) {
+            throw new ZipException("Invalid local header of " + record.name);
+        }
+        long data = record.offset + 30 + (header.getShort(26) & 0xFFFF) + (header.getShort(28) & 0xFFFF);
+        return read(data, (int) record.compressed).array();
+    }
+
+    /**
+     * Read the uncompressed data of the specified entry.
+     * 
+     * @param record The target entry.
+     * @return The uncompressed data.
+     */
+    byte[] read(Record record) throws IOException {
+        byte[] raw = raw(record);
+        if (record.method == ZipEntry.STORED) {
+            return raw;
+        }
+
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(raw);
+            byte[] bytes = new byte[(int) record.size];
+            int size = 0;
+            while (size < bytes.length && !inflater.finished()) {
+                int inflated = inflater.inflate(bytes, size, bytes.length - size);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                size += inflated;
+            }
+            if (size != bytes.length) {
+                throw new ZipException("Invalid compressed data of " + record.name);
+            }
+            return bytes;
+        } catch (DataFormatException e) {
+            throw new ZipException("Invalid compressed data of " + record.name);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Read the specified range.
+     * 
+     * @param position The start position.
+     * @param length The length of bytes.
+     * @return The little endian buffer.
+     */
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        if (mapped != null) {
+            if (mapped.capacity() < position + length) {
+                throw new ZipException("Unexpected end of archive");
+            }
+            mapped.get((int) position, buffer.array());
+            return buffer;
+        }
+
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new ZipException("Unexpected end of archive");
+            }
+        }
+        return buffer.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * The entry in the central directory.
+     * 
+     * @param name The entry name.
+     * @param method The compression method.
+     * @param time The modified time in MS-DOS format.
+     * @param crc The CRC-32 of the uncompressed data.
+     * @param compressed The compressed size.
+     * @param size The uncompressed size.
+     * @param offset The offset of local header.
+     */
+    record Record(String name, int method, int time, long crc, long compressed, long size, long offset) {
+
+        /**
+         * Convert the modified time to epoch milliseconds.
+         * 
+         * @return The modified time.
+         */
+        long modified() {
+            try {
+                int year = (time >> 25 & 0x7F) + 1980;
+                int month = Math.max(1, time >> 21 & 0x0F);
+                int day = Math.max(1, time >> 16 & 0x1F);
+                int second = Math.min(59, (time & 0x1F) << 1);
+
+                return LocalDateTime.of(year, month, day, time >> 11 & 0x1F, time >> 5 & 0x3F, second)
+                        .atZone(ZoneId.systemDefault())
+                        .toInstant()
+                        .toEpochMilli();
+            } catch (DateTimeException e) {
+                return 0;
+            }
+        }
+    }
+}
\ No newline at end of file
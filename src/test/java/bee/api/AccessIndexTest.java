@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2024 The BEE Development Team
+ *
+ * Licensed under the MIT License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          https://opensource.org/licenses/MIT
+ */
+package bee.api;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+import psychopath.Directory;
+import psychopath.Locator;
+
+class AccessIndexTest {
+
+    private static final String JAR = "a/a/1.0/a-1.0.jar";
+
+    private final BlobStore store = new BlobStore(Locator.temporaryDirectory().asJavaPath().resolve("blob"));
+
+    @Test
+    void evict() throws Exception {
+        Directory repository = Locator.temporaryDirectory();
+        Path file = file(repository, JAR, "content");
+
+        long freed = AccessIndex.of(repository).evict(0, Long.MAX_VALUE, null, store);
+        assert freed == "content".length();
+        assert Files.notExists(file);
+    }
+
+    @Test
+    void evictKeepsBlobLinkedByOtherRepository() throws Exception {
+        Directory repository = Locator.temporaryDirectory();
+        store.store("central", JAR, file(repository, JAR, "content"));
+
+        // the other project links the same blob into its own local repository
+        Directory other = Locator.temporaryDirectory();
+        Path linked = other.asJavaPath().resolve(JAR);
+        assert store.restore("central", JAR, linked);
+        store.store("central", JAR, linked);
+
+        AccessIndex.of(repository).evict(0, Long.MAX_VALUE, null, store);
+        assert Files.notExists(repository.asJavaPath().resolve(JAR));
+        assert Files.readString(linked).equals("content");
+        assert store.restore("central", JAR, Locator.temporaryDirectory().asJavaPath().resolve(JAR));
+    }
+
+    @Test
+    void evictReleasesUnlinkedBlob() throws Exception {
+        Directory repository = Locator.temporaryDirectory();
+        store.store("central", JAR, file(repository, JAR, "content"));
+
+        AccessIndex.of(repository).evict(0, Long.MAX_VALUE, null, store);
+        assert !store.restore("central", JAR, Locator.temporaryDirectory().asJavaPath().resolve(JAR));
+    }
+
+    /**
+     * Create the file with the specified content.
+     * 
+     * @param repository
+     * @param path
+     * @param content
+     * @return
+     */
+    private Path file(Directory repository, String path, String content) throws Exception {
+        Path file = repository.asJavaPath().resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+        return file;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2024 The BEE Development Team
+ *
+ * Licensed under the MIT License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          https://opensource.org/licenses/MIT
+ */
+package bee.api;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+import psychopath.Locator;
+
+class BlobStoreTest {
+
+    private final Path root = Locator.temporaryDirectory().asJavaPath();
+
+    private final BlobStore store = new BlobStore(root.resolve("blob"));
+
+    @Test
+    void storeAndRestore() throws Exception {
+        Path downloaded = file("download/a.jar", "content");
+        store.store("central", "a/a.jar", downloaded);
+        assert Files.readString(downloaded).equals("content");
+
+        Path restored = root.resolve("restore/a.jar");
+        assert store.restore("central", "a/a.jar", restored);
+        assert Files.readString(restored).equals("content");
+    }
+
+    @Test
+    void restoreUnknown() {
+        assert !store.restore("central", "unknown.jar", root.resolve("restore/unknown.jar"));
+    }
+
+    @Test
+    void restoreByReloadedIndex() throws Exception {
+        store.store("central", "a/a.jar", file("download/a.jar", "content"));
+
+        BlobStore reloaded = new BlobStore(root.resolve("blob"));
+        Path restored = root.resolve("restore/a.jar");
+        assert reloaded.restore("central", "a/a.jar", restored);
+        assert Files.readString(restored).equals("content");
+    }
+
+    @Test
+    void collision() throws Exception {
+        store.store("central", "a/a.jar", file("central/a.jar", "central"));
+        store.store("private", "a/a.jar", file("private/a.jar", "private"));
+
+        Path restored = root.resolve("restore/central.jar");
+        assert store.restore("central", "a/a.jar", restored);
+        assert Files.readString(restored).equals("central");
+
+        restored = root.resolve("restore/private.jar");
+        assert store.restore("private", "a/a.jar", restored);
+        assert Files.readString(restored).equals("private");
+
+        assert !store.restore("other", "a/a.jar", root.resolve("restore/other.jar"));
+    }
+
+    @Test
+    void corrupted() throws Exception {
+        Path downloaded = file("download/a.jar", "content");
+        store.store("central", "a/a.jar", downloaded);
+
+        // break the blob through the hardlink (or the blob itself on copy)
+        String hash = BlobStore.hash(downloaded);
+        Files.writeString(root.resolve("blob").resolve(hash.substring(0, 2)).resolve(hash), "broken");
+
+        assert !store.restore("central", "a/a.jar", root.resolve("restore/a.jar"));
+    }
+
+    @Test
+    void pruneReferenced() throws Exception {
+        Path downloaded = file("download/a.jar", "content");
+        store.store("central", "a/a.jar", downloaded);
+        // the restored file is registered after the validation (and the move) of resolver
+        Path temp = root.resolve("restore/a.jar.tmp");
+        assert store.restore("central", "a/a.jar", temp);
+        Path restored = Files.move(temp, root.resolve("restore/a.jar"));
+        store.store("central", "a/a.jar", restored);
+
+        // the blob is still referenced by the restored file
+        Files.delete(downloaded);
+        store.prune();
+        assert store.restore("central", "a/a.jar", root.resolve("restore/b.jar"));
+    }
+
+    @Test
+    void pruneRestoredButNotRegistered() throws Exception {
+        Path downloaded = file("download/a.jar", "content");
+        store.store("central", "a/a.jar", downloaded);
+        assert store.restore("central", "a/a.jar", root.resolve("restore/a.jar.tmp"));
+
+        // the temporary file of resolver is not the reference
+        Files.delete(downloaded);
+        store.prune();
+        assert !store.restore("central", "a/a.jar", root.resolve("restore/a.jar"));
+    }
+
+    @Test
+    void pruneUnreferenced() throws Exception {
+        Path downloaded = file("download/a.jar", "content");
+        store.store("central", "a/a.jar", downloaded);
+
+        Files.delete(downloaded);
+        store.prune();
+        assert !store.restore("central", "a/a.jar", root.resolve("restore/a.jar"));
+    }
+
+    /**
+     * Create the file with the specified content.
+     * 
+     * @param path
+     * @param content
+     * @return
+     */
+    private Path file(String path, String content) throws Exception {
+        Path file = root.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+        return file;
+    }
+}
\ No newline at end of file
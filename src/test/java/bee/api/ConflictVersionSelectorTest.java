@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2024 The BEE Development Team
+ *
+ * Licensed under the MIT License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          https://opensource.org/licenses/MIT
+ */
+package bee.api;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.graph.DefaultDependencyNode;
+import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.util.graph.transformer.ConflictResolver.ConflictContext;
+import org.eclipse.aether.util.graph.transformer.ConflictResolver.ConflictItem;
+import org.eclipse.aether.util.version.GenericVersionScheme;
+import org.eclipse.aether.version.Version;
+import org.eclipse.aether.version.VersionConstraint;
+import org.eclipse.aether.version.VersionRange;
+import org.junit.jupiter.api.Test;
+
+import bee.api.Repository.ConflictVersionSelector;
+
+class ConflictVersionSelectorTest {
+
+    private static final GenericVersionScheme scheme = new GenericVersionScheme();
+
+    /** The root node of the synthetic graph. */
+    private final DefaultDependencyNode root = new DefaultDependencyNode(new DefaultArtifact("root:root:1.0"));
+
+    /** The synthetic conflict items. */
+    private final List<ConflictItem> items = new ArrayList();
+
+    /** The number of actual constraint evaluations. */
+    private int evaluations;
+
+    @Test
+    void highest() throws Exception {
+        soft("1.0");
+        soft("2.0");
+        soft("1.5");
+
+        assert select().equals("2.0");
+    }
+
+    @Test
+    void range() throws Exception {
+        soft("2.0");
+        ranged("1.5", "[1.0,1.5]");
+
+        assert select().equals("1.5");
+    }
+
+    @Test
+    void rangeNarrowsWinner() throws Exception {
+        soft("3.0");
+        soft("1.2");
+        ranged("2.0", "[1.0,2.0]");
+        ranged("1.8", "[1.1,1.9]");
+
+        assert select().equals("1.8");
+    }
+
+    @Test
+    void unsolvable() throws Exception {
+        ranged("1.0", "[1.0]");
+        ranged("2.0", "[2.0]");
+
+        try {
+            select();
+            assert false;
+        } catch (Exception e) {
+            // expected
+        }
+    }
+
+    /**
+     * Synthetic benchmark with thousands of ranged edges to guard against the regression of
+     * repeated constraint evaluation.
+     */
+    @Test
+    void largeGraph() throws Exception {
+        Random random = new Random(1);
+        soft("120.0");
+        for (int i = 0; i < 5000; i++) {
+            int version = 1 + random.nextInt(200);
+            if (i % 3 == 0) {
+                soft(version + ".0");
+            } else {
+                ranged(version + ".0", "[" + random.nextInt(100) + ".0," + (150 + random.nextInt(50)) + ".0]");
+            }
+        }
+
+        ConflictVersionSelector selector = new ConflictVersionSelector(true);
+        assert select(selector).equals("150.0");
+
+        // each pair of constraint and version is evaluated at most once
+        Set<Object> constraints = new HashSet();
+        Set<Object> versions = new HashSet();
+        for (ConflictItem item : items) {
+            constraints.add(item.getNode().getVersionConstraint());
+            versions.add(item.getNode().getVersion());
+        }
+        assert evaluations <= constraints.size() * versions.size();
+        assert evaluations < items.size() * constraints.size() / 10;
+
+        // the results are reused by the next conflict group which has the same constraints
+        int evaluated = evaluations;
+        assert select(selector).equals("150.0");
+        assert evaluations == evaluated;
+    }
+
+    /**
+     * Add the candidate without version range.
+     * 
+     * @param version
+     */
+    private void soft(String version) throws Exception {
+        item(version, version);
+    }
+
+    /**
+     * Add the candidate with version range.
+     * 
+     * @param version
+     * @param range
+     */
+    private void ranged(String version, String range) throws Exception {
+        item(version, range);
+    }
+
+    /**
+     * Add the candidate.
+     * 
+     * @param version
+     * @param constraint
+     */
+    private void item(String version, String constraint) throws Exception {
+        DefaultDependencyNode node = new DefaultDependencyNode(new Dependency(new DefaultArtifact("test:conflict:" + version), "compile"));
+        node.setVersion(scheme.parseVersion(version));
+        node.setVersionConstraint(new Counting(scheme.parseVersionConstraint(constraint)));
+        root.getChildren().add(node);
+
+        items.add(new ConflictItem(root, node, 1, 0, "compile"));
+    }
+
+    /**
+     * Select the winner version.
+     * 
+     * @return
+     */
+    private String select() throws Exception {
+        return select(new ConflictVersionSelector(true));
+    }
+
+    /**
+     * Select the winner version by the specified selector.
+     * 
+     * @param selector
+     * @return
+     */
+    private String select(ConflictVersionSelector selector) throws Exception {
+        ConflictContext context = new ConflictContext(root, "test:conflict", new HashMap(), items);
+        selector.selectVersion(context);
+        return context.getWinner().getNode().getVersion().toString();
+    }
+
+    /**
+     * {@link VersionConstraint} which counts the actual evaluations.
+     */
+    private class Counting implements VersionConstraint {
+
+        /** The actual constraint. */
+        private final VersionConstraint delegate;
+
+        /**
+         * @param delegate The actual constraint.
+         */
+        private Counting(VersionConstraint delegate) {
+            this.delegate = delegate;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public VersionRange getRange() {
+            return delegate.getRange();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Version getVersion() {
+            return delegate.getVersion();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean containsVersion(Version version) {
+            evaluations++;
+            return delegate.containsVersion(version);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode() {
+            return delegate.hashCode();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Counting other && delegate.equals(other.delegate);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            return delegate.toString();
+        }
+    }
+}
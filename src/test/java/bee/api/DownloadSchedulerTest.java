@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2024 The BEE Development Team
+ *
+ * Licensed under the MIT License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          https://opensource.org/licenses/MIT
+ */
+package bee.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+import org.junit.jupiter.api.Test;
+
+import bee.api.DownloadScheduler.Priority;
+
+class DownloadSchedulerTest {
+
+    private final DownloadScheduler scheduler = new DownloadScheduler();
+
+    @Test
+    void priority() {
+        assert Priority.of("org/test/1.0/test-1.0.pom") == Priority.Metadata;
+        assert Priority.of("org/test/maven-metadata.xml") == Priority.Metadata;
+        assert Priority.of("org/test/1.0/test-1.0.jar") == Priority.Artifact;
+        assert Priority.of("org/test/1.0/test-1.0-sources.jar") == Priority.Attachment;
+        assert Priority.of("org/test/1.0/test-1.0-javadoc.jar") == Priority.Attachment;
+    }
+
+    @Test
+    void limitPerHost() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger max = new AtomicInteger();
+
+        List<Thread> threads = new ArrayList();
+        for (int i = 0; i < 10; i++) {
+            threads.add(Thread.startVirtualThread(() -> {
+                try {
+                    scheduler.execute("jitpack.io", "test.jar", () -> {
+                        max.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        Thread.sleep(20);
+                        running.decrementAndGet();
+                    });
+                } catch (Exception e) {
+                    throw new Error(e);
+                }
+            }));
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assert max.get() == 2;
+        assert scheduler.running() == 0;
+        assert scheduler.waiting() == 0;
+    }
+
+    @Test
+    void grantByPriority() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(DownloadScheduler.DEFAULT_LIMIT);
+        Semaphore release = new Semaphore(0);
+        List<String> order = new CopyOnWriteArrayList();
+
+        // occupy all slots
+        List<Thread> occupants = new ArrayList();
+        for (int i = 0; i < DownloadScheduler.DEFAULT_LIMIT; i++) {
+            occupants.add(Thread.startVirtualThread(() -> {
+                try {
+                    scheduler.execute("test", "occupy.jar", () -> {
+                        blocked.countDown();
+                        release.acquire();
+                    });
+                } catch (Exception e) {
+                    throw new Error(e);
+                }
+            }));
+        }
+        blocked.await();
+
+        List<Thread> waiters = new ArrayList();
+        for (String location : List.of("a-sources.jar", "b.jar", "c.pom")) {
+            waiters.add(Thread.startVirtualThread(() -> {
+                try {
+                    scheduler.execute("test", location, () -> order.add(location));
+                } catch (Exception e) {
+                    throw new Error(e);
+                }
+            }));
+
+            // keep arrival order
+            waitUntil(waiters.size(), scheduler::waiting);
+        }
+        assert scheduler.waiting() == 3;
+
+        // release the slot one by one
+        for (int i = 1; i <= waiters.size(); i++) {
+            release.release();
+            waitUntil(i, order::size);
+        }
+        release.release(DownloadScheduler.DEFAULT_LIMIT);
+
+        for (Thread thread : occupants) {
+            thread.join();
+        }
+        for (Thread thread : waiters) {
+            thread.join();
+        }
+        assert order.equals(List.of("c.pom", "b.jar", "a-sources.jar"));
+    }
+
+    /**
+     * Wait until the counter reaches the expected value.
+     * 
+     * @param expected
+     * @param counter
+     */
+    private void waitUntil(int expected, IntSupplier counter) throws InterruptedException {
+        long limit = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (counter.getAsInt() < expected && System.nanoTime() < limit) {
+            Thread.sleep(1);
+        }
+    }
+}
\ No newline at end of file
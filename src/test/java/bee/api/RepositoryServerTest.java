@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2024 The BEE Development Team
+ *
+ * Licensed under the MIT License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          https://opensource.org/licenses/MIT
+ */
+package bee.api;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.aether.repository.RemoteRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+import psychopath.Directory;
+import psychopath.Locator;
+
+class RepositoryServerTest {
+
+    private static final String JAR = "test/proxy/1.0/proxy-1.0.jar";
+
+    private static final byte[] CONTENT = "proxied content".getBytes(StandardCharsets.UTF_8);
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    /** The number of requests to the upstream. */
+    private final AtomicInteger hits = new AtomicInteger();
+
+    /** The stand-in upstream repository. */
+    private HttpServer upstream;
+
+    /** The local repository. */
+    private Directory local;
+
+    /** The isolated blob store. */
+    private BlobStore store;
+
+    /** The proxy server. */
+    private RepositoryServer proxy;
+
+    @BeforeEach
+    void setup() throws Exception {
+        String sha1 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-1").digest(CONTENT));
+
+        upstream = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        upstream.createContext("/", exchange -> {
+            hits.incrementAndGet();
+            if (exchange.getRequestURI().getPath().equals("/" + JAR)) {
+                exchange.getResponseHeaders().set("ETag", "\"" + sha1 + "\"");
+                exchange.sendResponseHeaders(200, CONTENT.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(CONTENT);
+                }
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+            }
+            exchange.close();
+        });
+        upstream.start();
+
+        local = Locator.temporaryDirectory();
+        RemoteRepository remote = new RemoteRepository.Builder("upstream", "default", "http://localhost:" + upstream.getAddress()
+                .getPort() + "/").build();
+        store = new BlobStore(Locator.temporaryDirectory().asJavaPath());
+        proxy = new RepositoryServer(local, List.of(remote), 60 * 1000, store).start(0);
+    }
+
+    @AfterEach
+    void teardown() {
+        proxy.stop();
+        upstream.stop(0);
+    }
+
+    @Test
+    void fetchAndCache() throws Exception {
+        HttpResponse<byte[]> response = get(JAR);
+        assert response.statusCode() == 200;
+        assert new String(response.body(), StandardCharsets.UTF_8).equals("proxied content");
+        assert local.file(JAR).isPresent();
+        assert hits.get() == 1;
+
+        // served from the local repository
+        response = get(JAR);
+        assert response.statusCode() == 200;
+        assert new String(response.body(), StandardCharsets.UTF_8).equals("proxied content");
+        assert hits.get() == 1;
+    }
+
+    @Test
+    void restoreFromBlobStore() throws Exception {
+        assert get(JAR).statusCode() == 200;
+        assert hits.get() == 1;
+
+        // the verified resource is shared with the other local repository
+        Directory other = Locator.temporaryDirectory();
+        RemoteRepository remote = new RemoteRepository.Builder("upstream", "default", "http://localhost:" + upstream.getAddress()
+                .getPort() + "/").build();
+        RepositoryServer another = new RepositoryServer(other, List.of(remote), 60 * 1000, store).start(0);
+        try {
+            HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + another
+                    .port() + "/" + JAR)).build(), BodyHandlers.ofByteArray());
+            assert response.statusCode() == 200;
+            assert new String(response.body(), StandardCharsets.UTF_8).equals("proxied content");
+            assert hits.get() == 1;
+        } finally {
+            another.stop();
+        }
+    }
+
+    @Test
+    void missing() throws Exception {
+        assert get("test/proxy/1.0/unknown-1.0.jar").statusCode() == 404;
+        assert local.file("test/proxy/1.0/unknown-1.0.jar").isAbsent();
+    }
+
+    @Test
+    void outsideOfRepository() throws Exception {
+        assert get("test/../../secret").statusCode() == 404;
+    }
+
+    @Test
+    void ifNoneMatch() throws Exception {
+        HttpResponse<byte[]> response = get(JAR);
+        String tag = response.headers().firstValue("ETag").get();
+
+        response = send(request(JAR).header("If-None-Match", tag));
+        assert response.statusCode() == 304;
+
+        response = send(request(JAR).header("If-None-Match", "\"other\""));
+        assert response.statusCode() == 200;
+    }
+
+    @Test
+    void ifModifiedSince() throws Exception {
+        HttpResponse<byte[]> response = get(JAR);
+        String modified = response.headers().firstValue("Last-Modified").get();
+
+        response = send(request(JAR).header("If-Modified-Since", modified));
+        assert response.statusCode() == 304;
+
+        response = send(request(JAR).header("If-Modified-Since", "Thu, 01 Jan 1970 00:00:00 GMT"));
+        assert response.statusCode() == 200;
+    }
+
+    @Test
+    void head() throws Exception {
+        HttpResponse<byte[]> response = send(request(JAR).method("HEAD", HttpRequest.BodyPublishers.noBody()));
+        assert response.statusCode() == 200;
+        assert response.headers().firstValueAsLong("Content-Length").getAsLong() == CONTENT.length;
+    }
+
+    /**
+     * Build the request to the proxy.
+     * 
+     * @param location
+     * @return
+     */
+    private HttpRequest.Builder request(String location) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + proxy.port() + "/" + location));
+    }
+
+    /**
+     * Send GET request to the proxy.
+     * 
+     * @param location
+     * @return
+     */
+    private HttpResponse<byte[]> get(String location) throws Exception {
+        return send(request(location));
+    }
+
+    /**
+     * Send the request.
+     * 
+     * @param request
+     * @return
+     */
+    private HttpResponse<byte[]> send(HttpRequest.Builder request) throws Exception {
+        return client.send(request.build(), BodyHandlers.ofByteArray());
+    }
+}
\ No newline at end of file
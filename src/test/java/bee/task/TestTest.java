@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2024 The BEE Development Team
+ *
+ * Licensed under the MIT License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          https://opensource.org/licenses/MIT
+ */
+package bee.task;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import bee.task.Test.ForkResult;
+import psychopath.Locator;
+
+class TestTest {
+
+    @Test
+    void partitionByDuration() {
+        Map<String, Long> durations = Map.of("A", 70L, "B", 40L, "C", 30L, "D", 20L, "E", 10L);
+
+        List<List<String>> partitions = bee.task.Test.partition(durations.keySet(), durations, 2);
+        assert partitions.size() == 2;
+        assert partitions.contains(List.of("A", "D"));
+        assert partitions.contains(List.of("B", "C", "E"));
+    }
+
+    @Test
+    void partitionWithoutHistory() {
+        Map<String, Long> durations = Map.of("A", 30L, "B", 10L);
+
+        List<List<String>> partitions = bee.task.Test.partition(List.of("A", "B", "C", "D"), durations, 2);
+        assert partitions.size() == 2;
+        assert partitions.contains(List.of("A", "B"));
+        assert partitions.contains(List.of("C", "D"));
+    }
+
+    @Test
+    void partitionLessThanForks() {
+        List<List<String>> partitions = bee.task.Test.partition(List.of("A", "B"), Map.of(), 8);
+        assert partitions.size() == 2;
+        assert partitions.contains(List.of("A"));
+        assert partitions.contains(List.of("B"));
+    }
+
+    @Test
+    void mergeForkResults() throws Exception {
+        Path reports = Locator.temporaryDirectory().asJavaPath();
+        new ForkResult(2, 5, 1, 0, 1, 100, false, List.of(), List.of("A failed")).write(reports, 0);
+        new ForkResult(3, 7, 0, 1, 0, 200, true, List.of("B errored"), List.of()).write(reports, 1);
+
+        ForkResult merged = ForkResult.merge(reports, 2);
+        assert merged.suites() == 5;
+        assert merged.runs() == 12;
+        assert merged.fails() == 1;
+        assert merged.errors() == 1;
+        assert merged.skips() == 1;
+        assert merged.times() == 300;
+        assert merged.shows();
+        assert merged.errored().equals(List.of("B errored"));
+        assert merged.failed().equals(List.of("A failed"));
+
+        // the read results are removed
+        assert Files.notExists(reports.resolve("fork-0.result"));
+        assert Files.notExists(reports.resolve("fork-1.result"));
+    }
+
+    @Test
+    void mergeMissingForkResult() throws Exception {
+        Path reports = Locator.temporaryDirectory().asJavaPath();
+        new ForkResult(1, 3, 0, 0, 0, 100, false, List.of(), List.of()).write(reports, 0);
+
+        ForkResult merged = ForkResult.merge(reports, 2);
+        assert merged.runs() == 3;
+        assert merged.errors() == 1;
+        assert merged.errored().size() == 1;
+    }
+}
\ No newline at end of file
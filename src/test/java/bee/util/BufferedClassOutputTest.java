@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2024 The BEE Development Team
+ *
+ * Licensed under the MIT License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          https://opensource.org/licenses/MIT
+ */
+package bee.util;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+import org.junit.jupiter.api.Test;
+
+import bee.util.JavaCompiler.Changes;
+import psychopath.Locator;
+
+class BufferedClassOutputTest {
+
+    private final Path root = Locator.temporaryDirectory().asJavaPath().toAbsolutePath().normalize();
+
+    @Test
+    void relativeOutput() throws Exception {
+        Path emitted = write("a/A.class", "old");
+        Path removed = write("a/B.class", "old");
+
+        // the stale files are recorded in the normalized absolute form by CompilationIndex
+        Path output = Path.of("").toAbsolutePath().relativize(root);
+        Map<Path, byte[]> buffer = new HashMap();
+        BufferedClassOutput manager = new BufferedClassOutput(ToolProvider.getSystemJavaCompiler()
+                .getStandardFileManager(null, null, null), output, buffer);
+        try (OutputStream out = manager.getJavaFileForOutput(StandardLocation.CLASS_OUTPUT, "a.A", Kind.CLASS, null).openOutputStream()) {
+            out.write("new".getBytes());
+        }
+
+        Changes changes = BufferedClassOutput.commit(output, buffer, Set.of(emitted, removed));
+        assert changes.added().isEmpty();
+        assert changes.changed().equals(Set.of("a.A"));
+        assert changes.removed().equals(Set.of("a.B"));
+        assert Files.readString(emitted).equals("new");
+        assert Files.notExists(removed);
+    }
+
+    /**
+     * Create the file with the specified content.
+     * 
+     * @param path
+     * @param content
+     * @return
+     */
+    private Path write(String path, String content) throws Exception {
+        Path file = root.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+        return file;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,245 @@
+/*
+ * Copyright (C) 2024 The BEE Development Team
+ *
+ * Licensed under the MIT License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          https://opensource.org/licenses/MIT
+ */
+package bee.util;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
+
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+import org.junit.jupiter.api.Test;
+
+import psychopath.Locator;
+
+class IndexedFileManagerTest {
+
+    private final Path root = Locator.temporaryDirectory().asJavaPath().toAbsolutePath().normalize();
+
+    private final Path cache = root.resolve("index");
+
+    @Test
+    void multiRelease() throws Exception {
+        Path jar = jar("lib.jar", "a/A.class", "base", "META-INF/versions/11/a/A.class", "v11", "META-INF/versions/17/a/A.class", "v17");
+
+        assert read(jar, 8).equals(List.of("a.A=base"));
+        assert read(jar, 11).equals(List.of("a.A=v11"));
+        assert read(jar, 16).equals(List.of("a.A=v11"));
+        assert read(jar, 21).equals(List.of("a.A=v17"));
+    }
+
+    @Test
+    void reuseIndex() throws Exception {
+        Path jar = jar("lib.jar", "a/A.class", "A");
+        FileTime time = Files.getLastModifiedTime(jar);
+
+        assert names(jar, "a").equals(List.of("a.A"));
+        assert indexes().size() == 1;
+        Path index = indexes().get(0);
+        Files.setLastModifiedTime(index, FileTime.fromMillis(1000));
+
+        // touch the jar to forget the loaded index, then restore the original time
+        Files.setLastModifiedTime(jar, FileTime.fromMillis(time.toMillis() + 10000));
+        assert names(jar, "a").equals(List.of("a.A"));
+        assert indexes().size() == 2;
+        Files.setLastModifiedTime(jar, time);
+
+        // the persisted index is read as is
+        assert names(jar, "a").equals(List.of("a.A"));
+        assert indexes().size() == 2;
+        assert Files.getLastModifiedTime(index).toMillis() == 1000;
+    }
+
+    @Test
+    void invalidateIndex() throws Exception {
+        Path jar = jar("lib.jar", "a/A.class", "A");
+        assert names(jar, "a").equals(List.of("a.A"));
+        assert names(jar, "b").isEmpty();
+
+        jar("lib.jar", "b/B.class", "B", "b/C.class", "C");
+        Files.setLastModifiedTime(jar, FileTime.fromMillis(Files.getLastModifiedTime(jar).toMillis() + 10000));
+        assert names(jar, "a").isEmpty();
+        assert names(jar, "b").equals(List.of("b.B", "b.C"));
+        assert indexes().size() == 2;
+    }
+
+    @Test
+    void sameAsStandardManager() throws Exception {
+        Path directory = root.resolve("classes");
+        write("classes/x/X.class", "X");
+        write("classes/x/y/Y.class", "Y");
+        write("classes/x/Source.java", "class Source {}");
+        Path jar = jar("lib.jar", "x/Z.class", "Z", "x/y/W.class", "W", "x/y/z/V.class", "V", "x/res.txt", "res");
+
+        StandardJavaFileManager standard = ToolProvider.getSystemJavaCompiler().getStandardFileManager(null, null, null);
+        standard.setLocationFromPaths(StandardLocation.CLASS_PATH, List.of(directory, jar));
+
+        try (IndexedFileManager indexed = manager(11, StandardCharsets.UTF_8, directory, jar)) {
+            for (String packageName : List.of("", "x", "x.y", "x.y.z", "none")) {
+                for (boolean recurse : new boolean[] {true, false}) {
+                    Set<Kind> kinds = EnumSet.of(Kind.CLASS, Kind.SOURCE);
+                    assert list(indexed, packageName, kinds, recurse).equals(list(standard, packageName, kinds, recurse));
+                }
+            }
+        }
+    }
+
+    @Test
+    void encoding() throws Exception {
+        Charset encoding = Charset.forName("Shift_JIS");
+        Path jar = root.resolve("source.jar");
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+            out.putNextEntry(new JarEntry("a/A.java"));
+            out.write("class A { String text = \"あいう\"; }".getBytes(encoding));
+        }
+
+        try (IndexedFileManager manager = manager(11, encoding, jar)) {
+            for (JavaFileObject file : manager.list(StandardLocation.CLASS_PATH, "a", EnumSet.of(Kind.SOURCE), false)) {
+                assert file.getCharContent(false).toString().equals("class A { String text = \"あいう\"; }");
+            }
+        }
+    }
+
+    /**
+     * Create the indexed manager.
+     * 
+     * @param release
+     * @param encoding
+     * @param classpath
+     * @return
+     */
+    private IndexedFileManager manager(int release, Charset encoding, Path... classpath) {
+        IndexedFileManager manager = new IndexedFileManager(ToolProvider.getSystemJavaCompiler()
+                .getStandardFileManager(null, null, null), cache, release, encoding, Set.of());
+        List<String> paths = Stream.of(classpath).map(Path::toString).toList();
+        manager.handleOption("-cp", List.of(String.join(File.pathSeparator, paths)).iterator());
+        return manager;
+    }
+
+    /**
+     * List the binary names in the package.
+     * 
+     * @param jar
+     * @param packageName
+     * @return
+     */
+    private List<String> names(Path jar, String packageName) throws Exception {
+        List<String> names = new ArrayList();
+        try (IndexedFileManager manager = manager(11, StandardCharsets.UTF_8, jar)) {
+            for (JavaFileObject file : manager.list(StandardLocation.CLASS_PATH, packageName, EnumSet.of(Kind.CLASS), false)) {
+                names.add(manager.inferBinaryName(StandardLocation.CLASS_PATH, file));
+            }
+        }
+        names.sort(null);
+        return names;
+    }
+
+    /**
+     * List the binary names and contents of all classes for the release.
+     * 
+     * @param jar
+     * @param release
+     * @return
+     */
+    private List<String> read(Path jar, int release) throws Exception {
+        List<String> list = new ArrayList();
+        try (IndexedFileManager manager = manager(release, StandardCharsets.UTF_8, jar)) {
+            for (JavaFileObject file : manager.list(StandardLocation.CLASS_PATH, "", EnumSet.of(Kind.CLASS), true)) {
+                try (InputStream in = file.openInputStream()) {
+                    list.add(manager.inferBinaryName(StandardLocation.CLASS_PATH, file) + "=" + new String(in.readAllBytes(), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return list;
+    }
+
+    /**
+     * List the binary names in the classpath.
+     * 
+     * @param manager
+     * @param packageName
+     * @param kinds
+     * @param recurse
+     * @return
+     */
+    private Set<String> list(JavaFileManager manager, String packageName, Set<Kind> kinds, boolean recurse) throws Exception {
+        Set<String> names = new TreeSet();
+        for (JavaFileObject file : manager.list(StandardLocation.CLASS_PATH, packageName, kinds, recurse)) {
+            names.add(file.getKind() + " " + manager.inferBinaryName(StandardLocation.CLASS_PATH, file));
+        }
+        return names;
+    }
+
+    /**
+     * Collect the persisted indexes.
+     * 
+     * @return
+     */
+    private List<Path> indexes() throws Exception {
+        try (Stream<Path> files = Files.list(cache)) {
+            return files.filter(file -> file.toString().endsWith(".index")).toList();
+        }
+    }
+
+    /**
+     * Create the multi-release jar with the specified entries.
+     * 
+     * @param path
+     * @param entries The pairs of entry name and content.
+     * @return
+     */
+    private Path jar(String path, String... entries) throws Exception {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(Attributes.Name.MULTI_RELEASE, "true");
+
+        Path file = root.resolve(path);
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(file), manifest)) {
+            for (int i = 0; i < entries.length; i += 2) {
+                out.putNextEntry(new JarEntry(entries[i]));
+                out.write(entries[i + 1].getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Create the file with the specified content.
+     * 
+     * @param path
+     * @param content
+     * @return
+     */
+    private Path write(String path, String content) throws Exception {
+        Path file = root.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+        return file;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,477 @@
+/*
+ * Copyright (C) 2024 The BEE Development Team
+ *
+ * Licensed under the MIT License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          https://opensource.org/licenses/MIT
+ */
+package bee.util;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+
+import bee.Fail;
+import bee.util.JarWriter.Duplicate;
+import psychopath.Directory;
+import psychopath.File;
+import psychopath.Locator;
+
+class JarWriterTest {
+
+    private final Directory source = Locator.temporaryDirectory();
+
+    private final Directory output = Locator.temporaryDirectory();
+
+    @Test
+    void directory() throws Exception {
+        write("a.txt", "A");
+        write("dir/b.txt", "B");
+
+        File jar = output.file("test.jar");
+        assert new JarWriter().addDirectory(source).write(jar) == 3;
+        assert names(jar).equals(List.of("a.txt", "dir/", "dir/b.txt"));
+        assert read(jar, "a.txt").equals("A");
+        assert read(jar, "dir/b.txt").equals("B");
+    }
+
+    @Test
+    void prefix() throws Exception {
+        write("a.txt", "A");
+
+        File jar = output.file("test.jar");
+        new JarWriter().addDirectory(source, "root/").write(jar);
+        assert names(jar).equals(List.of("root/", "root/a.txt"));
+    }
+
+    @Test
+    void manifestIsFirst() throws Exception {
+        write("a.txt", "A");
+        write("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\n");
+
+        File jar = output.file("test.jar");
+        new JarWriter().addDirectory(source).write(jar);
+        assert names(jar).subList(0, 2).equals(List.of("META-INF/", "META-INF/MANIFEST.MF"));
+    }
+
+    @Test
+    void firstWins() throws Exception {
+        write("a.txt", "A");
+        File other = write("other.txt", "Other");
+
+        File jar = output.file("test.jar");
+        new JarWriter().addFile(other, "a.txt").addDirectory(source).write(jar);
+        assert read(jar, "a.txt").equals("Other");
+    }
+
+    @Test
+    void archive() throws Exception {
+        write("a.txt", "A");
+        write("dir/b.txt", "B");
+
+        File first = output.file("first.jar");
+        new JarWriter().addDirectory(source).write(first);
+
+        File jar = output.file("test.jar");
+        new JarWriter().addArchive(first).write(jar);
+        assert names(jar).equals(List.of("a.txt", "dir/", "dir/b.txt"));
+        assert read(jar, "dir/b.txt").equals("B");
+    }
+
+    @Test
+    void archiveRawCopy() throws Exception {
+        File first = output.file("first.jar");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(first.asJavaPath()))) {
+            out.setLevel(0);
+            out.putNextEntry(new ZipEntry("a.txt"));
+            out.write("AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA".getBytes());
+            out.closeEntry();
+        }
+
+        File jar = output.file("test.jar");
+        new JarWriter().addArchive(first).write(jar);
+        assert read(jar, "a.txt").equals("AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA");
+        assert compressedSize(jar, "a.txt") == compressedSize(first, "a.txt");
+    }
+
+    @Test
+    void mergeServices() throws Exception {
+        File first = archive("first.jar", "META-INF/services/Service", "one");
+        File second = archive("second.jar", "META-INF/services/Service", "two\n");
+
+        File jar = output.file("test.jar");
+        new JarWriter().addArchive(first).addArchive(second).write(jar);
+        assert read(jar, "META-INF/services/Service").equals("one\ntwo\n");
+    }
+
+    @Test
+    void keepFirstManifest() throws Exception {
+        File first = archive("first.jar", "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\nMain-Class: First\r\n\r\n");
+        File second = archive("second.jar", "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\nMain-Class: Second\r\nMulti-Release: true\r\n\r\n");
+
+        File jar = output.file("test.jar");
+        new JarWriter().addArchive(first).addArchive(second).write(jar);
+        try (JarFile file = new JarFile(jar.asJavaPath().toFile())) {
+            Attributes attributes = file.getManifest().getMainAttributes();
+            assert attributes.getValue("Main-Class").equals("First");
+            assert attributes.getValue("Multi-Release") == null;
+        }
+    }
+
+    @Test
+    void excludeSignature() throws Exception {
+        File first = archive("first.jar", "META-INF/SIGNER.SF", "signature");
+
+        File jar = output.file("test.jar");
+        new JarWriter().addArchive(first).write(jar);
+        assert names(jar).isEmpty();
+    }
+
+    @Test
+    void duplicateLast() throws Exception {
+        File first = archive("first.jar", "a.txt", "First");
+        File second = archive("second.jar", "a.txt", "Second");
+
+        File jar = output.file("test.jar");
+        new JarWriter().duplicate(Duplicate.Last).addArchive(first).addArchive(second).write(jar);
+        assert read(jar, "a.txt").equals("Second");
+    }
+
+    @Test
+    void duplicateFail() throws Exception {
+        File first = archive("first.jar", "a.txt", "First");
+        File second = archive("second.jar", "a.txt", "Second");
+
+        try {
+            new JarWriter().duplicate(Duplicate.Fail).addArchive(first).addArchive(second).write(output.file("test.jar"));
+            assert false;
+        } catch (Fail e) {
+            // expected
+        }
+    }
+
+    @Test
+    void store() throws Exception {
+        write("a.txt", "AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA");
+
+        File jar = output.file("test.jar");
+        new JarWriter().store(true).addDirectory(source).write(jar);
+        try (ZipFile zip = new ZipFile(jar.asJavaPath().toFile())) {
+            assert zip.getEntry("a.txt").getMethod() == ZipEntry.STORED;
+        }
+        assert read(jar, "a.txt").equals("AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA");
+    }
+
+    @Test
+    void reproducible() throws Exception {
+        Path b = write("b.txt", "B").asJavaPath();
+        Path a = write("a/a.txt", "A").asJavaPath();
+
+        File first = output.file("first.jar");
+        new JarWriter().reproducible(true).addFile(source.file("b.txt"), "b.txt").addDirectory(source).write(first);
+
+        Files.setLastModifiedTime(a, FileTime.fromMillis(Files.getLastModifiedTime(a).toMillis() + 100000));
+        Files.setLastModifiedTime(b, FileTime.fromMillis(Files.getLastModifiedTime(b).toMillis() + 100000));
+
+        File second = output.file("second.jar");
+        new JarWriter().reproducible(true).addDirectory(source).write(second);
+
+        assert names(second).equals(List.of("a/", "a/a.txt", "b.txt"));
+        assert Arrays.equals(Files.readAllBytes(first.asJavaPath()), Files.readAllBytes(second.asJavaPath()));
+    }
+
+    @Test
+    void transform() throws Exception {
+        write("a.class", "a");
+        write("b.txt", "b");
+
+        File jar = output.file("test.jar");
+        new JarWriter().transform(new Upper()).addDirectory(source).write(jar);
+        assert read(jar, "a.class").equals("A");
+        assert read(jar, "b.txt").equals("b");
+    }
+
+    @Test
+    void transformCache() throws Exception {
+        write("a.class", "a");
+        write("b.class", "b");
+
+        Directory cache = Locator.temporaryDirectory();
+        Upper upper = new Upper();
+        File jar = output.file("test.jar");
+        new JarWriter().transform(upper).cache(cache).addDirectory(source).write(jar);
+        assert upper.count.get() == 2;
+
+        // reuse cache
+        write("b.class", "bb");
+        new JarWriter().transform(upper).cache(cache).addDirectory(source).write(jar);
+        assert upper.count.get() == 3;
+        assert read(jar, "a.class").equals("A");
+        assert read(jar, "b.class").equals("BB");
+
+        // remove unused cache
+        try (Stream<Path> files = Files.list(cache.asJavaPath())) {
+            assert files.count() == 2;
+        }
+    }
+
+    /**
+     * Transform to upper case.
+     */
+    private static class Upper implements JarWriter.Transformer {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public boolean accept(String name) {
+            return name.endsWith(".class");
+        }
+
+        @Override
+        public String id() {
+            return "upper";
+        }
+
+        @Override
+        public byte[] transform(byte[] bytes) {
+            count.incrementAndGet();
+            return new String(bytes).toUpperCase().getBytes();
+        }
+    }
+
+    @Test
+    void largeEntry() throws Exception {
+        Random random = new Random(1);
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < 2 * 1024 * 1024) {
+            builder.append("line ").append(random.nextInt(1000)).append('\n');
+        }
+        write("large.txt", builder.toString());
+
+        File jar = output.file("test.jar");
+        new JarWriter().addDirectory(source).write(jar);
+        assert read(jar, "large.txt").equals(builder.toString());
+        assert stream(jar, "large.txt").equals(builder.toString());
+    }
+
+    @Test
+    void incompressible() throws Exception {
+        byte[] bytes = new byte[4096];
+        new Random(1).nextBytes(bytes);
+        Path file = source.file("random.bin").asJavaPath();
+        Files.write(file, bytes);
+
+        File jar = output.file("test.jar");
+        new JarWriter().addDirectory(source).write(jar);
+        try (ZipFile zip = new ZipFile(jar.asJavaPath().toFile())) {
+            ZipEntry entry = zip.getEntry("random.bin");
+            assert entry.getMethod() == ZipEntry.STORED;
+            try (InputStream in = zip.getInputStream(entry)) {
+                assert Arrays.equals(in.readAllBytes(), bytes);
+            }
+        }
+    }
+
+    @Test
+    void incremental() throws Exception {
+        write("a.txt", "AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA");
+        write("b.txt", "BBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBB");
+        write("c.txt", "C");
+
+        // the previous archive stores all entries without compression
+        File jar = output.file("test.jar");
+        uncompressed(jar, "a.txt", "b.txt", "c.txt");
+        long stored = compressedSize(jar, "a.txt");
+
+        write("b.txt", "Modified BBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBB");
+        Files.delete(source.file("c.txt").asJavaPath());
+
+        new JarWriter().incremental(true).addDirectory(source).write(jar);
+        assert names(jar).equals(List.of("a.txt", "b.txt"));
+        assert read(jar, "a.txt").equals("AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA");
+        assert read(jar, "b.txt").equals("Modified BBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBB");
+        assert stream(jar, "a.txt").equals("AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA");
+
+        // unchanged entry is copied as it is, modified entry is compressed again
+        assert compressedSize(jar, "a.txt") == stored;
+        assert compressedSize(jar, "b.txt") < 40;
+    }
+
+    @Test
+    void incrementalCollision() throws Exception {
+        write("a.txt", "original");
+
+        File jar = output.file("test.jar");
+        new JarWriter().store(true).addDirectory(source).write(jar);
+
+        // forge the entry whose CRC-32 and size are same as the source but the contents differ
+        byte[] bytes = Files.readAllBytes(jar.asJavaPath());
+        for (int i = 0; i < bytes.length - 8; i++) {
+            if (new String(bytes, i, 8, StandardCharsets.ISO_8859_1).equals("original")) {
+                System.arraycopy("tampered".getBytes(), 0, bytes, i, 8);
+            }
+        }
+        Files.write(jar.asJavaPath(), bytes);
+
+        new JarWriter().incremental(true).store(true).addDirectory(source).write(jar);
+        assert read(jar, "a.txt").equals("original");
+    }
+
+    @Test
+    void incrementalStore() throws Exception {
+        write("a.txt", "AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA");
+
+        File jar = output.file("test.jar");
+        uncompressed(jar, "a.txt");
+
+        // the deflated entry is not reused in store mode
+        new JarWriter().incremental(true).store(true).addDirectory(source).write(jar);
+        try (ZipFile zip = new ZipFile(jar.asJavaPath().toFile())) {
+            assert zip.getEntry("a.txt").getMethod() == ZipEntry.STORED;
+        }
+        assert read(jar, "a.txt").equals("AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA");
+    }
+
+    @Test
+    void incrementalReproducible() throws Exception {
+        write("a.txt", "AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA");
+
+        File jar = output.file("test.jar");
+        uncompressed(jar, "a.txt");
+        long stored = compressedSize(jar, "a.txt");
+
+        // the previous archive is not reused
+        new JarWriter().incremental(true).reproducible(true).addDirectory(source).write(jar);
+        assert compressedSize(jar, "a.txt") < stored;
+
+        File expected = output.file("expected.jar");
+        new JarWriter().reproducible(true).addDirectory(source).write(expected);
+        assert Arrays.equals(Files.readAllBytes(jar.asJavaPath()), Files.readAllBytes(expected.asJavaPath()));
+    }
+
+    /**
+     * Write the archive by deflater without compression.
+     * 
+     * @param jar
+     * @param names
+     */
+    private void uncompressed(File jar, String... names) throws Exception {
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar.asJavaPath()))) {
+            out.setMethod(ZipOutputStream.DEFLATED);
+            out.setLevel(0);
+            for (String name : names) {
+                out.putNextEntry(new ZipEntry(name));
+                out.write(Files.readAllBytes(source.file(name).asJavaPath()));
+                out.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * Read the compressed size of the entry.
+     * 
+     * @param jar
+     * @param name
+     * @return
+     */
+    private long compressedSize(File jar, String name) throws Exception {
+        try (ZipFile zip = new ZipFile(jar.asJavaPath().toFile())) {
+            return zip.getEntry(name).getCompressedSize();
+        }
+    }
+
+    /**
+     * Write the source file.
+     * 
+     * @param path
+     * @param contents
+     */
+    private File write(String path, String contents) throws Exception {
+        Path file = source.file(path).asJavaPath();
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, contents);
+        return source.file(path);
+    }
+
+    /**
+     * Create the archive which has the single entry.
+     * 
+     * @param archive
+     * @param name
+     * @param contents
+     * @return
+     */
+    private File archive(String archive, String name, String contents) throws Exception {
+        File file = output.file(archive);
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(file.asJavaPath()))) {
+            out.putNextEntry(new ZipEntry(name));
+            out.write(contents.getBytes());
+            out.closeEntry();
+        }
+        return file;
+    }
+
+    /**
+     * List all entry names.
+     * 
+     * @param jar
+     * @return
+     */
+    private List<String> names(File jar) throws Exception {
+        List<String> names = new ArrayList();
+        try (ZipFile zip = new ZipFile(jar.asJavaPath().toFile())) {
+            zip.stream().forEach(entry -> names.add(entry.getName()));
+        }
+        return names;
+    }
+
+    /**
+     * Read the entry by the central directory.
+     * 
+     * @param jar
+     * @param name
+     * @return
+     */
+    private String read(File jar, String name) throws Exception {
+        try (ZipFile zip = new ZipFile(jar.asJavaPath().toFile()); InputStream in = zip.getInputStream(zip.getEntry(name))) {
+            return new String(in.readAllBytes());
+        }
+    }
+
+    /**
+     * Read the entry by the local headers.
+     * 
+     * @param jar
+     * @param name
+     * @return
+     */
+    private String stream(File jar, String name) throws Exception {
+        try (ZipInputStream in = new ZipInputStream(Files.newInputStream(jar.asJavaPath()))) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                if (entry.getName().equals(name)) {
+                    return new String(in.readAllBytes());
+                }
+            }
+        }
+        return null;
+    }
+}
\ No newline at end of file
@@ -9,13 +9,28 @@
  */
 package bee.util;
 
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
 import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
 
 import org.junit.jupiter.api.Test;
 
 import bee.BlinkProject;
 import bee.sample.Interface;
+import kiss.I;
 import psychopath.File;
+import psychopath.Locator;
 
 class JavaCompilerTest {
 
@@ -86,4 +101,314 @@ class JavaCompilerTest {
         assert source.isPresent();
         assert bytecode.isPresent();
     }
+
+    @Test
+    void ecjRecompileDependentsByStructuralChange() throws Exception {
+        BlinkProject project = new BlinkProject();
+        project.source("A", "public int value() { return 1; }");
+        project.source("B", "Object value = new A().value();");
+        compileByECJ(project);
+
+        File b = project.locateMainOutput("B.class");
+        Files.setLastModifiedTime(b.asJavaPath(), FileTime.fromMillis(0));
+
+        // change implementation only
+        project.source("A", "public int value() { return 10; }");
+        compileByECJ(project);
+        assert b.lastModifiedMilli() == 0;
+
+        // change signature
+        project.source("A", "public long value() { return 10; }");
+        compileByECJ(project);
+        assert b.lastModifiedMilli() != 0;
+    }
+
+    @Test
+    void recompileDependents() throws Exception {
+        BlinkProject project = new BlinkProject();
+        project.source("A", "public int value() { return 1; }");
+        project.source("B", "Object value = new A().value();");
+        project.source("C");
+        compile(project);
+
+        File a = project.locateMainOutput("A.class");
+        File b = project.locateMainOutput("B.class");
+        File c = project.locateMainOutput("C.class");
+        for (File file : List.of(a, b, c)) {
+            Files.setLastModifiedTime(file.asJavaPath(), FileTime.fromMillis(0));
+        }
+
+        project.source("A", "public long value() { return 10; }");
+        compile(project);
+
+        assert a.lastModifiedMilli() != 0;
+        assert b.lastModifiedMilli() != 0;
+        assert c.lastModifiedMilli() == 0;
+    }
+
+    @Test
+    void writeOnlyChangedClasses() throws Exception {
+        BlinkProject project = new BlinkProject();
+        project.source("A", "public int value() { return 1; }");
+        project.source("B", "int value = new A().value();");
+        project.source("C", "class Inner {}");
+        compile(project);
+
+        File a = project.locateMainOutput("A.class");
+        File b = project.locateMainOutput("B.class");
+        for (File file : List.of(a, b)) {
+            Files.setLastModifiedTime(file.asJavaPath(), FileTime.fromMillis(0));
+        }
+
+        // B is recompiled but its bytes are same
+        project.source("A", "public int value() { return 10; }");
+        project.source("C");
+        JavaCompiler compiler = JavaCompiler.with() //
+                .addSourceDirectory(project.getSourceSet())
+                .setOutput(project.getClasses());
+        compiler.compile();
+
+        assert a.lastModifiedMilli() != 0;
+        assert b.lastModifiedMilli() == 0;
+        assert compiler.getChanges().added().isEmpty();
+        assert compiler.getChanges().changed().equals(Set.of("A", "C"));
+        assert compiler.getChanges().removed().equals(Set.of("C$Inner"));
+    }
+
+    @Test
+    void deleteOrphans() {
+        BlinkProject project = new BlinkProject();
+        project.source("A", "class Inner {}", "Runnable anonymous = new Runnable() { public void run() {} };");
+        Path c = project.source("C");
+        compile(project);
+
+        assert project.locateMainOutput("A$Inner.class").isPresent();
+        assert project.locateMainOutput("A$1.class").isPresent();
+        assert project.locateMainOutput("C.class").isPresent();
+
+        project.source("A");
+        Locator.file(c).delete();
+        compile(project);
+
+        assert project.locateMainOutput("A.class").isPresent();
+        assert project.locateMainOutput("A$Inner.class").isAbsent();
+        assert project.locateMainOutput("A$1.class").isAbsent();
+        assert project.locateMainOutput("C.class").isAbsent();
+    }
+
+    @Test
+    void deleteOrphansByConfigurationChange() {
+        BlinkProject project = new BlinkProject();
+        project.source("A");
+        Path c = project.source("C");
+        compile(project);
+        assert project.locateMainOutput("C.class").isPresent();
+
+        // the index for the other configuration is discarded
+        Locator.file(c).delete();
+        JavaCompiler.with() //
+                .addSourceDirectory(project.getSourceSet())
+                .setOutput(project.getClasses())
+                .setVersion(SourceVersion.RELEASE_17)
+                .compile();
+
+        assert project.locateMainOutput("A.class").isPresent();
+        assert project.locateMainOutput("C.class").isAbsent();
+    }
+
+    @Test
+    void recompileAllByConstantChange() throws Exception {
+        BlinkProject project = new BlinkProject();
+        project.source("A", "public static final int VALUE = 1;");
+        project.source("B", "int value = A.VALUE;");
+        compile(project);
+
+        File b = project.locateMainOutput("B.class");
+        Files.setLastModifiedTime(b.asJavaPath(), FileTime.fromMillis(0));
+
+        project.source("A", "public static final int VALUE = 100;");
+        compile(project);
+
+        assert b.lastModifiedMilli() != 0;
+    }
+
+    @Test
+    void skipDownstreamByAbi() throws Exception {
+        BlinkProject project = new BlinkProject();
+        project.source("A", "public int value() { return 1; }");
+        Path test = project.sourceTest("ATest");
+        Files.writeString(test, "public class ATest { Object value = new A().value(); }");
+        compile(project);
+        compileTest(project);
+
+        File bytecode = project.locateTestOutput("ATest.class");
+        Files.setLastModifiedTime(bytecode.asJavaPath(), FileTime.fromMillis(0));
+
+        // change implementation only
+        project.source("A", "public int value() { return 10; }");
+        compile(project);
+        compileTest(project);
+        assert bytecode.lastModifiedMilli() == 0;
+
+        // change signature
+        project.source("A", "public long value() { return 10; }");
+        compile(project);
+        compileTest(project);
+        assert bytecode.lastModifiedMilli() != 0;
+    }
+
+    @Test
+    void headerOnly() throws Exception {
+        BlinkProject project = new BlinkProject();
+        project.source("A", "public int value() { return 1; }");
+        Path test = project.sourceTest("ATest");
+        Files.writeString(test, "public class ATest { int value = new A().value(); }");
+
+        ClassLoader loader = JavaCompiler.with() //
+                .addSourceDirectory(project.getSourceSet())
+                .setOutput(project.getClasses())
+                .setHeaderOnly(true)
+                .compile();
+        compileTest(project);
+        assert project.locateTestOutput("ATest.class").isPresent();
+
+        // the method body is stripped
+        Class header = loader.loadClass("A");
+        try {
+            header.getMethod("value").invoke(header.getConstructor().newInstance());
+            assert false;
+        } catch (InvocationTargetException e) {
+            assert e.getCause() instanceof NullPointerException;
+        }
+    }
+
+    @Test
+    void headerOnlyQualifiedSuper() throws Exception {
+        BlinkProject project = new BlinkProject();
+        project.source("A", "public class Inner {}");
+        Path b = project.source("B");
+        Files.writeString(b, "public class B extends A.Inner { public B(A outer) { outer.super(); } }");
+
+        JavaCompiler.with() //
+                .addSourceDirectory(project.getSourceSet())
+                .setOutput(project.getClasses())
+                .setHeaderOnly(true)
+                .compile();
+        assert project.locateMainOutput("B.class").isPresent();
+    }
+
+    @Test
+    void regenerateIsolatingOutput() throws Exception {
+        BlinkProject project = new BlinkProject();
+        project.source("A");
+        Path b = project.source("B");
+        compileWithProcessor(project);
+
+        File infoA = project.locateMainOutput("AInfo.java");
+        File infoB = project.locateMainOutput("BInfo.java");
+        assert infoA.isPresent();
+        assert infoB.isPresent();
+        assert project.locateMainOutput("AInfo.class").isPresent();
+        for (File file : List.of(infoA, infoB)) {
+            Files.setLastModifiedTime(file.asJavaPath(), FileTime.fromMillis(0));
+        }
+
+        // only the output of the changed source is regenerated
+        project.source("A", "int value;");
+        compileWithProcessor(project);
+        assert infoA.lastModifiedMilli() != 0;
+        assert infoB.lastModifiedMilli() == 0;
+
+        // the output of the removed source is deleted
+        Locator.file(b).delete();
+        compileWithProcessor(project);
+        assert infoA.isPresent();
+        assert infoB.isAbsent();
+        assert project.locateMainOutput("BInfo.class").isAbsent();
+    }
+
+    /**
+     * Compile the main sources.
+     * 
+     * @param project
+     */
+    private void compile(BlinkProject project) {
+        JavaCompiler.with() //
+                .addSourceDirectory(project.getSourceSet())
+                .setOutput(project.getClasses())
+                .compile();
+    }
+
+    /**
+     * Compile the main sources by ECJ.
+     * 
+     * @param project
+     */
+    private void compileByECJ(BlinkProject project) {
+        JavaCompiler.with() //
+                .addSourceDirectory(project.getSourceSet())
+                .setOutput(project.getClasses())
+                .setEclipseCompiler(true)
+                .compile();
+    }
+
+    /**
+     * Compile the main sources with the isolating annotation processor.
+     * 
+     * @param project
+     */
+    private void compileWithProcessor(BlinkProject project) {
+        JavaCompiler.with() //
+                .addSourceDirectory(project.getSourceSet())
+                .setOutput(project.getClasses())
+                .addProcessor(new InfoProcessor())
+                .setProcessorType(InfoProcessor.class.getName(), JavaCompiler.ProcessorType.Isolating)
+                .compile();
+    }
+
+    /**
+     * Generate the companion class of each type.
+     */
+    @SupportedAnnotationTypes("*")
+    private static class InfoProcessor extends AbstractProcessor {
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+            return SourceVersion.latest();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+            for (Element element : round.getRootElements()) {
+                String name = element.getSimpleName().toString();
+                if (!name.endsWith("Info")) {
+                    try (Writer writer = processingEnv.getFiler().createSourceFile(name + "Info", element).openWriter()) {
+                        writer.write("class " + name + "Info { " + name + " type; }");
+                    } catch (Exception e) {
+                        throw I.quiet(e);
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Compile the test sources.
+     * 
+     * @param project
+     */
+    private void compileTest(BlinkProject project) {
+        JavaCompiler.with() //
+                .addSourceDirectory(project.getTestSourceSet())
+                .addClassPath(project.getClasses())
+                .setOutput(project.getTestClasses())
+                .compile();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2024 The BEE Development Team
+ *
+ * Licensed under the MIT License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          https://opensource.org/licenses/MIT
+ */
+package bee.util;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.jupiter.api.Test;
+
+import kiss.I;
+import psychopath.Directory;
+import psychopath.Locator;
+
+class ResourceSyncTest {
+
+    private final Directory source = Locator.temporaryDirectory();
+
+    private final Directory output = Locator.temporaryDirectory();
+
+    @Test
+    void copy() throws Exception {
+        write("a.txt", "A");
+        write("dir/b.txt", "B");
+        write("Main.java", "class Main {}");
+
+        ResourceSync.Result result = sync();
+        assert result.copied() == 2;
+        assert Files.readString(output.file("a.txt").asJavaPath()).equals("A");
+        assert Files.readString(output.file("dir/b.txt").asJavaPath()).equals("B");
+        assert Files.notExists(output.file("Main.java").asJavaPath());
+    }
+
+    @Test
+    void skipUnchanged() throws Exception {
+        write("a.txt", "A");
+        write("b.txt", "B");
+        sync();
+
+        ResourceSync.Result result = sync();
+        assert result.copied() == 0;
+        assert result.unchanged() == 2;
+    }
+
+    @Test
+    void skipTouched() throws Exception {
+        Path file = write("a.txt", "A");
+        sync();
+
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 10000));
+        ResourceSync.Result result = sync();
+        assert result.copied() == 0;
+        assert result.unchanged() == 1;
+    }
+
+    @Test
+    void copyModified() throws Exception {
+        Path file = write("a.txt", "A");
+        sync();
+
+        write("a.txt", "Modified");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 10000));
+        ResourceSync.Result result = sync();
+        assert result.copied() == 1;
+        assert Files.readString(output.file("a.txt").asJavaPath()).equals("Modified");
+    }
+
+    @Test
+    void deleteOrphan() throws Exception {
+        Path file = write("a.txt", "A");
+        write("b.txt", "B");
+        sync();
+
+        Files.delete(file);
+        ResourceSync.Result result = sync();
+        assert result.deleted() == 1;
+        assert Files.notExists(output.file("a.txt").asJavaPath());
+        assert Files.exists(output.file("b.txt").asJavaPath());
+    }
+
+    @Test
+    void keepUnmanagedFile() throws Exception {
+        write("a.txt", "A");
+        sync();
+
+        Files.writeString(output.file("Main.class").asJavaPath(), "class");
+        ResourceSync.Result result = sync();
+        assert result.deleted() == 0;
+        assert Files.exists(output.file("Main.class").asJavaPath());
+    }
+
+    @Test
+    void link() throws Exception {
+        Path file = write("large.bin", "0123456789");
+
+        ResourceSync.Result result = new ResourceSync(output, "main").link(5).sync(I.signal(source));
+        assert result.copied() == 1;
+        assert Files.isSameFile(file, output.file("large.bin").asJavaPath());
+    }
+
+    /**
+     * Synchronize resources.
+     * 
+     * @return
+     */
+    private ResourceSync.Result sync() {
+        return new ResourceSync(output, "main").sync(I.signal(source));
+    }
+
+    /**
+     * Write the resource file.
+     * 
+     * @param path
+     * @param contents
+     */
+    private Path write(String path, String contents) throws Exception {
+        Path file = source.file(path).asJavaPath();
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, contents);
+        return file;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2024 The BEE Development Team
+ *
+ * Licensed under the MIT License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          https://opensource.org/licenses/MIT
+ */
+package bee.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+class ShrinkerTest {
+
+    private final Map<String, byte[]> entries = new HashMap();
+
+    @Test
+    void reachable() {
+        define("p/Main", "java/lang/Object", "Lp/Used;");
+        define("p/Used", "java/lang/Object", null);
+        define("p/Unused", "java/lang/Object", null);
+
+        Set<String> retained = new Shrinker().root("p.Main").select(entries.keySet(), entries::get);
+        assert retained.contains("p/Main.class");
+        assert retained.contains("p/Used.class");
+        assert retained.contains("p/");
+        assert !retained.contains("p/Unused.class");
+    }
+
+    @Test
+    void superclass() {
+        define("p/Main", "p/Parent", null);
+        define("p/Parent", "java/lang/Object", null);
+
+        Set<String> retained = new Shrinker().root("p.Main").select(entries.keySet(), entries::get);
+        assert retained.contains("p/Parent.class");
+    }
+
+    @Test
+    void service() {
+        define("p/Service", "java/lang/Object", null);
+        define("p/Provider", "p/Service", null);
+        define("p/Unused", "java/lang/Object", null);
+        entries.put("META-INF/services/p.Service", "# comment\np.Provider\n".getBytes());
+
+        Set<String> retained = new Shrinker().select(entries.keySet(), entries::get);
+        assert retained.contains("p/Service.class");
+        assert retained.contains("p/Provider.class");
+        assert retained.contains("META-INF/services/p.Service");
+        assert !retained.contains("p/Unused.class");
+    }
+
+    @Test
+    void extensible() {
+        define("kiss/Extensible", "java/lang/Object", null);
+        define("p/Extension", "java/lang/Object", null, "kiss/Extensible");
+        define("p/SubExtension", "p/Extension", null);
+
+        Set<String> retained = new Shrinker().select(entries.keySet(), entries::get);
+        assert retained.contains("p/Extension.class");
+        assert retained.contains("p/SubExtension.class");
+    }
+
+    @Test
+    void keep() {
+        define("p/api/Model", "java/lang/Object", null);
+        define("p/api/nest/Model", "java/lang/Object", null);
+        define("p/impl/Model", "java/lang/Object", null);
+
+        Set<String> retained = new Shrinker().keep("p.api.*").select(entries.keySet(), entries::get);
+        assert retained.contains("p/api/Model.class");
+        assert !retained.contains("p/api/nest/Model.class");
+        assert !retained.contains("p/impl/Model.class");
+
+        retained = new Shrinker().keep("p.api.**").select(entries.keySet(), entries::get);
+        assert retained.contains("p/api/nest/Model.class");
+    }
+
+    @Test
+    void reflection() {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, "p/Main", null, "java/lang/Object", null);
+        MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "name", "()Ljava/lang/String;", null, null);
+        method.visitCode();
+        method.visitLdcInsn("p.Reflected");
+        method.visitInsn(Opcodes.ARETURN);
+        method.visitMaxs(1, 0);
+        method.visitEnd();
+        writer.visitEnd();
+        entries.put("p/Main.class", writer.toByteArray());
+        define("p/Reflected", "java/lang/Object", null);
+
+        Set<String> retained = new Shrinker().root("p.Main").select(entries.keySet(), entries::get);
+        assert retained.contains("p/Reflected.class");
+    }
+
+    @Test
+    void resource() {
+        define("p/Main", "java/lang/Object", null);
+        define("q/Unused", "java/lang/Object", null);
+        entries.put("p/used.txt", new byte[0]);
+        entries.put("q/unused.txt", new byte[0]);
+        entries.put("root.txt", new byte[0]);
+        entries.put("META-INF/LICENSE", new byte[0]);
+
+        Set<String> retained = new Shrinker().root("p.Main").select(entries.keySet(), entries::get);
+        assert retained.contains("p/used.txt");
+        assert retained.contains("root.txt");
+        assert retained.contains("META-INF/LICENSE");
+        assert !retained.contains("q/unused.txt");
+        assert !retained.contains("q/");
+    }
+
+    /**
+     * Define the class which has the field of the specified type.
+     * 
+     * @param name
+     * @param superName
+     * @param fieldType
+     * @param interfaces
+     */
+    private void define(String name, String superName, String fieldType, String... interfaces) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, name, null, superName, interfaces);
+        if (fieldType != null) {
+            writer.visitField(Opcodes.ACC_PUBLIC, "field", fieldType, null, null).visitEnd();
+        }
+        writer.visitEnd();
+        entries.put(name + ".class", writer.toByteArray());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2024 The BEE Development Team
+ *
+ * Licensed under the MIT License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          https://opensource.org/licenses/MIT
+ */
+package bee.util;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import psychopath.Locator;
+
+class SourcePartitionerTest {
+
+    private final Path root = Locator.temporaryDirectory().asJavaPath();
+
+    private final Map<String, Path> files = new LinkedHashMap();
+
+    @Test
+    void independent() throws Exception {
+        source("A", "class A {}");
+        source("B", "class B {}");
+        source("C", "class C {}");
+
+        List<List<String>> partitions = SourcePartitioner.partition(files, files.keySet(), 8);
+        assert partitions.size() == 3;
+    }
+
+    @Test
+    void connected() throws Exception {
+        source("A", "class A { B b; }");
+        source("B", "class B {}");
+        source("C", "class C { static void call() { D.call(); } }");
+        source("D", "class D { static void call() {} }");
+
+        List<List<String>> partitions = SourcePartitioner.partition(files, files.keySet(), 8);
+        assert partitions.size() == 2;
+        assert partitions.contains(List.of("A.java", "B.java"));
+        assert partitions.contains(List.of("C.java", "D.java"));
+    }
+
+    @Test
+    void transitive() throws Exception {
+        source("A", "class A { B b; }");
+        source("B", "class B {}");
+        source("C", "class C { B b; }");
+
+        List<List<String>> partitions = SourcePartitioner.partition(files, files.keySet(), 8);
+        assert partitions.size() == 1;
+    }
+
+    @Test
+    void unchangedSourceIsIgnored() throws Exception {
+        source("A", "class A { B b; }");
+        source("B", "class B {}");
+        source("C", "class C { B b; }");
+
+        List<List<String>> partitions = SourcePartitioner.partition(files, List.of("A.java", "C.java"), 8);
+        assert partitions.size() == 2;
+    }
+
+    @Test
+    void balance() throws Exception {
+        source("A", "class A { B b; C c; }");
+        source("B", "class B {}");
+        source("C", "class C {}");
+        source("D", "class D {}");
+        source("E", "class E {}");
+        source("F", "class F {}");
+
+        List<List<String>> partitions = SourcePartitioner.partition(files, files.keySet(), 2);
+        assert partitions.size() == 2;
+        assert partitions.get(0).size() == 3;
+        assert partitions.get(1).size() == 3;
+    }
+
+    @Test
+    void module() throws Exception {
+        source("module-info", "module a {}");
+        source("A", "class A {}");
+        source("B", "class B {}");
+
+        List<List<String>> partitions = SourcePartitioner.partition(files, files.keySet(), 8);
+        assert partitions.size() == 1;
+        assert partitions.get(0).contains("module-info.java");
+    }
+
+    /**
+     * Write the source file.
+     * 
+     * @param name
+     * @param code
+     */
+    private void source(String name, String code) throws Exception {
+        Path file = root.resolve(name + ".java");
+        Files.writeString(file, code);
+        files.put(name + ".java", file);
+    }
+}
\ No newline at end of file